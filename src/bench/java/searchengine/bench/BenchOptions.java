@@ -0,0 +1,56 @@
+package searchengine.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BenchOptions {
+
+    private static final String PREFIX = "--bench.";
+
+    private final Map<String, String> options = new HashMap<>();
+    private final List<String> passthrough = new ArrayList<>();
+
+    public BenchOptions(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith(PREFIX)) {
+                passthrough.add(arg);
+                continue;
+            }
+            int split = arg.indexOf('=');
+            if (split < 0) {
+                options.put(arg.substring(PREFIX.length()), "true");
+            } else {
+                options.put(arg.substring(PREFIX.length(), split), arg.substring(split + 1));
+            }
+        }
+    }
+
+    public List<String> getPassthrough() {
+        return passthrough;
+    }
+
+    public boolean hasPassthrough(String property) {
+        return passthrough.stream().anyMatch(arg -> arg.startsWith("--" + property + "="));
+    }
+
+    public String getString(String key, String defaultValue) {
+        return options.getOrDefault(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,161 @@
+package searchengine.bench;
+
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import searchengine.Application;
+import searchengine.model.Site;
+import searchengine.model.SiteStatus;
+import searchengine.repository.SiteRepository;
+import searchengine.services.IndexingService;
+import searchengine.task.CrawlScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+public class CrawlBenchmark {
+
+    private static final String DATABASE_URL = "jdbc:mysql://localhost:3306/search_engine_bench" +
+        "?createDatabaseIfNotExist=true&useUnicode=true&characterEncoding=UTF-8&useSSL=false" +
+        "&useAffectedRows=true&allowPublicKeyRetrieval=true";
+    private static final long POLL_MILLIS = 200;
+
+    public static void main(String[] args) throws Exception {
+        BenchOptions options = new BenchOptions(args);
+        SyntheticSite.Settings siteSettings = new SyntheticSite.Settings()
+            .setPages(options.getInt("pages", 2000))
+            .setFanOut(options.getInt("fan-out", 8))
+            .setPageWords(options.getInt("page-words", 400))
+            .setRussianShare(options.getDouble("russian-share", 0.5))
+            .setLatency(options.getLong("latency", 5))
+            .setJitter(options.getLong("jitter", 10))
+            .setErrorRate(options.getDouble("error-rate", 0.01))
+            .setSeed(options.getLong("seed", 42));
+        long timeout = TimeUnit.SECONDS.toMillis(options.getLong("timeout", 600));
+
+        try (SyntheticSite syntheticSite = SyntheticSite.start(siteSettings);
+             RecordingStream stream = new RecordingStream()) {
+            String url = syntheticSite.getUrl();
+            LatencyRecorder latencies = new LatencyRecorder();
+            stream.enable("searchengine.PageProcess").withThreshold(Duration.ZERO);
+            stream.onEvent("searchengine.PageProcess", event -> {
+                if ("SUCCESS".equals(event.getString("outcome"))) {
+                    latencies.record(event.getDuration().toNanos());
+                }
+            });
+            stream.startAsync();
+
+            ConfigurableApplicationContext context = SpringApplication.run(
+                Application.class, springArgs(options, url)
+            );
+            try {
+                IndexingService indexingService = context.getBean(IndexingService.class);
+                CrawlScheduler crawlScheduler = context.getBean(CrawlScheduler.class);
+                SiteRepository siteRepository = context.getBean(SiteRepository.class);
+                JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+                long started = System.nanoTime();
+                indexingService.startIndexing();
+                long deadline = System.currentTimeMillis() + timeout;
+                Site site = awaitCrawl(url, crawlScheduler, siteRepository, deadline);
+                double seconds = (System.nanoTime() - started) / 1e9;
+
+                long pages = count(jdbcTemplate,
+                    "SELECT COUNT(*) FROM site_page WHERE site_id = ? AND code > 0", site);
+                long rows = count(jdbcTemplate,
+                    "SELECT COUNT(*) FROM site_page WHERE site_id = ?", site) +
+                    count(jdbcTemplate, "SELECT COUNT(*) FROM lemma WHERE site_id = ?", site) +
+                    count(jdbcTemplate, "SELECT COUNT(*) FROM `index` i " +
+                        "JOIN site_page p ON p.id = i.page_id WHERE p.site_id = ?", site);
+                stream.stop();
+
+                System.out.printf(Locale.ROOT, "site           %s (%s)%n", url, site.getStatus());
+                System.out.printf(Locale.ROOT, "config         pages=%d fan-out=%d words=%d ru=%.2f " +
+                        "latency=%d+%dms errors=%.3f seed=%d%n",
+                    siteSettings.getPages(), siteSettings.getFanOut(), siteSettings.getPageWords(),
+                    siteSettings.getRussianShare(), siteSettings.getLatency(),
+                    siteSettings.getJitter(), siteSettings.getErrorRate(), siteSettings.getSeed());
+                System.out.printf(Locale.ROOT, "requests       %d (%d injected errors)%n",
+                    syntheticSite.getRequests().get(), syntheticSite.getErrors().get());
+                System.out.printf(Locale.ROOT, "elapsed        %.2f s%n", seconds);
+                System.out.printf(Locale.ROOT, "pages          %d (%.1f pages/s)%n",
+                    pages, pages / seconds);
+                System.out.printf(Locale.ROOT, "db rows        %d (%.1f rows/s)%n",
+                    rows, rows / seconds);
+                System.out.printf(Locale.ROOT, "page latency   p50=%.2f ms p99=%.2f ms (%d samples)%n",
+                    latencies.percentile(0.50) / 1e6, latencies.percentile(0.99) / 1e6,
+                    latencies.size());
+            } finally {
+                context.close();
+            }
+        }
+    }
+
+    private static String[] springArgs(BenchOptions options, String url) {
+        List<String> args = new ArrayList<>(options.getPassthrough());
+        args.add("--indexing-settings.sites[0].url=" + url);
+        args.add("--indexing-settings.sites[0].name=Synthetic");
+        if (!options.hasPassthrough("crawl-settings.delay")) {
+            args.add("--crawl-settings.delay=0");
+        }
+        if (!options.hasPassthrough("spring.datasource.jdbc-url")) {
+            args.add("--spring.datasource.jdbc-url=" + DATABASE_URL);
+        }
+        if (!options.hasPassthrough("server.port")) {
+            args.add("--server.port=0");
+        }
+        return args.toArray(String[]::new);
+    }
+
+    private static Site awaitCrawl(String url, CrawlScheduler crawlScheduler,
+                                   SiteRepository siteRepository, long deadline)
+        throws InterruptedException {
+        boolean started = false;
+        while (System.currentTimeMillis() < deadline) {
+            Thread.sleep(POLL_MILLIS);
+            Site site = siteRepository.getByUrl(url);
+            started |= crawlScheduler.isRunning();
+            if (site != null && started && !crawlScheduler.isRunning() &&
+                site.getStatus() != SiteStatus.INDEXING) {
+                return site;
+            }
+        }
+        throw new IllegalStateException("Crawl did not finish in time");
+    }
+
+    private static long count(JdbcTemplate jdbcTemplate, String sql, Site site) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, site.getId());
+        return count == null ? 0 : count;
+    }
+
+    private static class LatencyRecorder {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void record(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        synchronized double percentile(double quantile) {
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted[Math.max(0, (int) Math.ceil(quantile * size) - 1)];
+        }
+    }
+}
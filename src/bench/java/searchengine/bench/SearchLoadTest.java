@@ -0,0 +1,284 @@
+package searchengine.bench;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+public class SearchLoadTest {
+
+    private static final long MAX_LATENCY = TimeUnit.MINUTES.toNanos(1);
+
+    public static void main(String[] args) throws Exception {
+        BenchOptions options = new BenchOptions(args);
+        String baseUrl = options.getString("url", "http://localhost:8080");
+        double rate = options.getDouble("rate", 20);
+        long warmup = TimeUnit.SECONDS.toNanos(options.getLong("warmup", 10));
+        long duration = TimeUnit.SECONDS.toNanos(options.getLong("duration", 60));
+        int maxInFlight = options.getInt("max-in-flight", 256);
+        long seed = options.getLong("seed", 42);
+        String histogramLog = options.getString("histogram-log", null);
+
+        QuerySource queries = options.getString("log", null) != null ?
+            QuerySource.replay(Path.of(options.getString("log", null))) :
+            QuerySource.zipfian(options, seed);
+
+        Map<QueryClass, Histogram> histograms = new EnumMap<>(QueryClass.class);
+        Map<QueryClass, AtomicLong> errors = new EnumMap<>(QueryClass.class);
+        Map<QueryClass, AtomicLong> dropped = new EnumMap<>(QueryClass.class);
+        for (QueryClass queryClass : QueryClass.values()) {
+            histograms.put(queryClass, new ConcurrentHistogram(MAX_LATENCY, 3));
+            errors.put(queryClass, new AtomicLong());
+            dropped.put(queryClass, new AtomicLong());
+        }
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong truncated = new AtomicLong();
+        long droppedTotal = 0;
+
+        ExecutorService executor = Executors.newCachedThreadPool();
+        HttpClient client = HttpClient.newBuilder()
+            .executor(executor)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        SplittableRandom arrivals = new SplittableRandom(seed);
+        long started = System.nanoTime();
+        long measureFrom = started + warmup;
+        long end = measureFrom + duration;
+        long intended = started;
+        long sent = 0;
+        while (intended < end) {
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Query query = queries.next();
+            boolean measured = intended >= measureFrom;
+            if (!inFlight.tryAcquire()) {
+                if (measured) {
+                    droppedTotal++;
+                    query.classes().forEach(c -> {
+                        dropped.get(c).incrementAndGet();
+                        histograms.get(c).recordValue(MAX_LATENCY);
+                    });
+                }
+            } else {
+                long scheduled = intended;
+                client.sendAsync(request(baseUrl, query), HttpResponse.BodyHandlers.ofString())
+                    .whenComplete((response, error) -> {
+                        inFlight.release();
+                        if (!measured) {
+                            return;
+                        }
+                        long latency = Math.min(System.nanoTime() - scheduled, MAX_LATENCY);
+                        if (error != null || response.statusCode() != 200) {
+                            if (response != null && response.statusCode() == 503) {
+                                rejected.incrementAndGet();
+                            }
+                            query.classes().forEach(c -> errors.get(c).incrementAndGet());
+                            return;
+                        }
+                        if (response.body().contains("\"truncated\":true")) {
+                            truncated.incrementAndGet();
+                        }
+                        query.classes().forEach(c -> histograms.get(c).recordValue(latency));
+                    });
+                sent++;
+            }
+            intended += (long) (-Math.log(1 - arrivals.nextDouble()) / rate * 1e9);
+        }
+        inFlight.acquire(maxInFlight);
+        executor.shutdownNow();
+
+        double seconds = duration / 1e9;
+        System.out.printf(Locale.ROOT, "target         %s%n", baseUrl);
+        System.out.printf(Locale.ROOT, "load           %.1f req/s Poisson, %d s warmup, %d s measured, " +
+                "seed=%d, %s%n", rate, TimeUnit.NANOSECONDS.toSeconds(warmup),
+            TimeUnit.NANOSECONDS.toSeconds(duration), seed, queries.describe());
+        System.out.printf(Locale.ROOT, "sent           %d, dropped %d, rejected %d, truncated %d%n",
+            sent, droppedTotal, rejected.get(), truncated.get());
+        System.out.printf(Locale.ROOT, "%-14s %8s %8s %8s %10s %10s %10s %10s%n",
+            "class", "ok", "errors", "dropped", "req/s", "p50 ms", "p99 ms", "p999 ms");
+        for (QueryClass queryClass : QueryClass.values()) {
+            Histogram histogram = histograms.get(queryClass);
+            long classDropped = dropped.get(queryClass).get();
+            long ok = histogram.getTotalCount() - classDropped;
+            System.out.printf(Locale.ROOT, "%-14s %8d %8d %8d %10.1f %10.2f %10.2f %10.2f%n",
+                queryClass.label, ok, errors.get(queryClass).get(), classDropped,
+                ok / seconds,
+                histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6);
+        }
+        if (histogramLog != null) {
+            writeLog(new File(histogramLog), histograms);
+        }
+    }
+
+    private static HttpRequest request(String baseUrl, Query query) {
+        StringBuilder uri = new StringBuilder(baseUrl).append("/api/search?query=")
+            .append(URLEncoder.encode(query.text(), StandardCharsets.UTF_8));
+        if (query.site() != null) {
+            uri.append("&site=").append(URLEncoder.encode(query.site(), StandardCharsets.UTF_8));
+        }
+        return HttpRequest.newBuilder(URI.create(uri.toString()))
+            .timeout(Duration.ofNanos(MAX_LATENCY))
+            .GET()
+            .build();
+    }
+
+    private static void writeLog(File file, Map<QueryClass, Histogram> histograms)
+        throws IOException {
+        try (HistogramLogWriter writer = new HistogramLogWriter(file)) {
+            writer.outputLogFormatVersion();
+            writer.outputLegend();
+            for (Map.Entry<QueryClass, Histogram> entry : histograms.entrySet()) {
+                Histogram histogram = entry.getValue();
+                histogram.setTag(entry.getKey().name());
+                writer.outputIntervalHistogram(histogram);
+            }
+        }
+    }
+
+    enum QueryClass {
+        ONE_LEMMA("1 lemma"),
+        MULTI_LEMMA("multi-lemma"),
+        SITE_FILTERED("site-filtered"),
+        ALL_SITES("all-sites");
+
+        private final String label;
+
+        QueryClass(String label) {
+            this.label = label;
+        }
+    }
+
+    record Query(String text, String site) {
+
+        List<QueryClass> classes() {
+            int words = text.trim().split("\\s+").length;
+            return List.of(
+                words == 1 ? QueryClass.ONE_LEMMA : QueryClass.MULTI_LEMMA,
+                site == null ? QueryClass.ALL_SITES : QueryClass.SITE_FILTERED
+            );
+        }
+    }
+
+    private interface QuerySource {
+
+        Query next();
+
+        String describe();
+
+        static QuerySource replay(Path log) throws IOException {
+            List<Query> queries = new ArrayList<>();
+            try (Stream<String> lines = Files.lines(log, StandardCharsets.UTF_8)) {
+                lines.filter(line -> !line.isBlank()).forEach(line -> {
+                    String[] parts = line.split("\t", 2);
+                    queries.add(new Query(
+                        parts[0].trim(), parts.length > 1 && !parts[1].isBlank() ?
+                            parts[1].trim() : null
+                    ));
+                });
+            }
+            if (queries.isEmpty()) {
+                throw new IllegalArgumentException("Query log is empty: " + log);
+            }
+            return new QuerySource() {
+                private int position;
+
+                @Override
+                public Query next() {
+                    Query query = queries.get(position);
+                    position = (position + 1) % queries.size();
+                    return query;
+                }
+
+                @Override
+                public String describe() {
+                    return "replay of " + queries.size() + " queries from " + log;
+                }
+            };
+        }
+
+        static QuerySource zipfian(BenchOptions options, long seed) throws IOException {
+            String wordsFile = options.getString("words", null);
+            List<String> words = new ArrayList<>();
+            if (wordsFile != null) {
+                Files.readAllLines(Path.of(wordsFile), StandardCharsets.UTF_8).stream()
+                    .map(String::trim)
+                    .filter(word -> !word.isEmpty())
+                    .forEach(words::add);
+            } else {
+                for (int i = 0; i < SyntheticSite.RUSSIAN.length; i++) {
+                    words.add(SyntheticSite.RUSSIAN[i]);
+                    if (i < SyntheticSite.ENGLISH.length) {
+                        words.add(SyntheticSite.ENGLISH[i]);
+                    }
+                }
+            }
+            String sites = options.getString("sites", "");
+            String[] siteUrls = sites.isBlank() ? new String[0] : sites.split(",");
+            double exponent = options.getDouble("zipf", 1.0);
+            double multiShare = options.getDouble("multi-share", 0.5);
+            double siteShare = siteUrls.length == 0 ? 0 : options.getDouble("site-share", 0.3);
+            int maxWords = Math.max(2, options.getInt("max-words", 3));
+
+            double[] cdf = new double[words.size()];
+            double total = 0;
+            for (int rank = 0; rank < cdf.length; rank++) {
+                total += 1 / Math.pow(rank + 1, exponent);
+                cdf[rank] = total;
+            }
+            double sum = total;
+            SplittableRandom random = new SplittableRandom(seed ^ 0x5DEECE66DL);
+            return new QuerySource() {
+                @Override
+                public Query next() {
+                    int count = random.nextDouble() < multiShare ? random.nextInt(2, maxWords + 1) : 1;
+                    StringBuilder text = new StringBuilder();
+                    for (int i = 0; i < count; i++) {
+                        int rank = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+                        rank = rank < 0 ? Math.min(-rank - 1, cdf.length - 1) : rank;
+                        text.append(i == 0 ? "" : " ").append(words.get(rank));
+                    }
+                    String site = random.nextDouble() < siteShare ?
+                        siteUrls[random.nextInt(siteUrls.length)].trim() : null;
+                    return new Query(text.toString(), site);
+                }
+
+                @Override
+                public String describe() {
+                    return String.format(Locale.ROOT,
+                        "zipf(s=%.2f) over %d words, multi=%.2f, site=%.2f",
+                        exponent, words.size(), multiShare, siteShare);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package searchengine.bench;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SyntheticSite implements AutoCloseable {
+
+    private static final String PAGE_PREFIX = "/page/";
+    private static final int PARAGRAPH_WORDS = 60;
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+    static final String[] RUSSIAN = {
+        "дом", "город", "человек", "время", "работа", "жизнь", "день", "рука",
+        "система", "вопрос", "страна", "мир", "случай", "голова", "ребёнок",
+        "сила", "конец", "вид", "сторона", "место", "лицо", "друг", "глаз",
+        "история", "дорога", "книга", "слово", "компания", "решение", "телефон",
+        "сеть", "программа", "поиск", "магазин", "цена", "доставка", "товар",
+        "новый", "большой", "хороший", "быстрый", "простой", "работать",
+        "искать", "читать", "говорить", "покупать", "знать", "строить"
+    };
+    static final String[] ENGLISH = {
+        "house", "city", "people", "time", "work", "life", "day", "hand",
+        "system", "question", "country", "world", "case", "head", "child",
+        "power", "end", "kind", "side", "place", "face", "friend", "eye",
+        "story", "road", "book", "word", "company", "decision", "phone",
+        "network", "program", "search", "store", "price", "delivery", "product",
+        "new", "large", "good", "fast", "simple", "working", "find", "read",
+        "speak", "buy", "know", "build"
+    };
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    @Getter
+    private final AtomicLong requests = new AtomicLong();
+    @Getter
+    private final AtomicLong errors = new AtomicLong();
+
+    private SyntheticSite(Settings settings) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", settings.getPort()), 0);
+        this.executor = Executors.newFixedThreadPool(settings.getThreads());
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public static SyntheticSite start(Settings settings) throws IOException {
+        SyntheticSite site = new SyntheticSite(settings);
+        site.server.start();
+        return site;
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try (exchange) {
+            sleep();
+            int page = page(exchange.getRequestURI().getPath());
+            if (page < 0) {
+                send(exchange, 404, "<html><body>Not found</body></html>");
+                return;
+            }
+            SplittableRandom random = new SplittableRandom(settings.getSeed() + page * SEED_STEP);
+            if (page > 0 && random.nextDouble() < settings.getErrorRate()) {
+                errors.incrementAndGet();
+                send(exchange, 500, "<html><body>Internal error</body></html>");
+                return;
+            }
+            send(exchange, 200, html(page, random));
+        }
+    }
+
+    private int page(String path) {
+        if (path.equals("/") || path.isEmpty()) {
+            return 0;
+        }
+        if (!path.startsWith(PAGE_PREFIX)) {
+            return -1;
+        }
+        try {
+            int page = Integer.parseInt(path.substring(PAGE_PREFIX.length()));
+            return page > 0 && page < settings.getPages() ? page : -1;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    private String html(int page, SplittableRandom random) {
+        StringBuilder html = new StringBuilder(settings.getPageWords() * 10 + 512);
+        html.append("<!DOCTYPE html><html><head><meta charset=\"utf-8\"><title>")
+            .append(words(random, 4))
+            .append("</title></head><body><nav>");
+        int pages = settings.getPages();
+        int fanOut = settings.getFanOut();
+        for (int i = 1; i <= fanOut; i++) {
+            long child = (long) page * fanOut + i;
+            if (child < pages) {
+                link(html, (int) child);
+            }
+        }
+        for (int i = 0; i < fanOut; i++) {
+            link(html, random.nextInt(pages));
+        }
+        html.append("</nav><main>");
+        for (int left = settings.getPageWords(); left > 0; left -= PARAGRAPH_WORDS) {
+            html.append("<p>")
+                .append(words(random, Math.min(left, PARAGRAPH_WORDS)))
+                .append("</p>");
+        }
+        return html.append("</main></body></html>").toString();
+    }
+
+    private void link(StringBuilder html, int page) {
+        html.append("<a href=\"")
+            .append(page == 0 ? "/" : PAGE_PREFIX + page)
+            .append("\">")
+            .append(page)
+            .append("</a> ");
+    }
+
+    private String words(SplittableRandom random, int count) {
+        StringBuilder words = new StringBuilder(count * 10);
+        for (int i = 0; i < count; i++) {
+            String[] vocabulary = random.nextDouble() < settings.getRussianShare() ?
+                RUSSIAN : ENGLISH;
+            double skew = random.nextDouble();
+            words.append(i == 0 ? "" : " ")
+                .append(vocabulary[(int) (skew * skew * vocabulary.length)]);
+        }
+        return words.toString();
+    }
+
+    private void sleep() {
+        long delay = settings.getLatency() + (settings.getJitter() > 0 ?
+            ThreadLocalRandom.current().nextLong(settings.getJitter() + 1) : 0);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Getter
+    @Setter
+    @Accessors(chain = true)
+    public static class Settings {
+        private int port = 0;
+        private int threads = 32;
+        private int pages = 2000;
+        private int fanOut = 8;
+        private int pageWords = 400;
+        private double russianShare = 0.5;
+        private long latency = 5;
+        private long jitter = 10;
+        private double errorRate = 0.01;
+        private long seed = 42;
+    }
+}
@@ -1,7 +1,8 @@
 package searchengine.config;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import org.springframework.boot.context.properties.ConfigurationProperties;
-import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -11,12 +12,22 @@ import javax.sql.DataSource;
 @Configuration
 public class ApplicationConfig {
 
+    private static final int POOL_RESERVE = 4;
+
     @ConfigurationProperties(prefix = "spring.datasource")
     @Bean
-    public DataSource dataSource() {
-        return DataSourceBuilder
-            .create()
-            .build();
+    public HikariConfig hikariConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    public DataSource dataSource(HikariConfig hikariConfig,
+                                 CrawlSettings crawlSettings,
+                                 SearchSettings searchSettings) {
+        int required = crawlSettings.getDbConnections() +
+            searchSettings.getDbConnections() + POOL_RESERVE;
+        hikariConfig.setMaximumPoolSize(Math.max(hikariConfig.getMaximumPoolSize(), required));
+        return new HikariDataSource(hikariConfig);
     }
 
     @Bean
@@ -0,0 +1,17 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "compaction-settings")
+public class CompactionSettings {
+    private boolean enabled = true;
+    private long interval = 3600000;
+    private int batchSize = 500;
+    private long pause = 200;
+}
@@ -0,0 +1,34 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "crawl-settings")
+public class CrawlSettings {
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int dbConnections = 4;
+    private int perSite = 2;
+    private long delay = 2000;
+    private long countersFlush = 10000;
+    private String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+    private long leaseTtl = 30000;
+    private long leaseHeartbeat = 5000;
+    private int maxLeases = 16;
+    private int maxBodySize = 5 * 1024 * 1024;
+    private boolean headCheck = false;
+    private List<String> allowedTypes = List.of("text/html", "application/xhtml+xml");
+    private int maxRetries = 3;
+    private long retryDelay = 5000;
+    private long slowFetch = 5000;
+    private int breakerFailures = 5;
+    private long breakerCooldown = 30000;
+    private int breakerMaxTrips = 5;
+}
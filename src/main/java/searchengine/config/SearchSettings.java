@@ -0,0 +1,33 @@
+package searchengine.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Setter
+@Getter
+@Component
+@ConfigurationProperties(prefix = "search-settings")
+public class SearchSettings {
+    private double bm25K1 = 1.2;
+    private double bm25B = 0.75;
+    private double stopLemmaShare = 0.6;
+    private long stopLemmaMinPages = 50;
+    private int fuzzyMaxEdits = 2;
+    private int fuzzyExpansions = 3;
+    private String snapshotDir = "snapshots";
+    private boolean offHeapPostings = true;
+    private long postingRebuildDelay = 5000;
+    private long dictionaryRebuildDelay = 5000;
+    private long offHeapMaxPostings = 20_000_000;
+    private long deadline = 2000;
+    private long maxDeadline = 10000;
+    private int limiterMin = 2;
+    private int limiterMax = 8;
+    private int limiterInitial = 4;
+    private double limiterTolerance = 1.5;
+    private int queueSize = 16;
+    private long queueTimeout = 100;
+    private int dbConnections = 6;
+}
@@ -8,4 +8,6 @@ import lombok.Setter;
 public class SiteConfig {
     private String url;
     private String name;
+    private int weight = 1;
+    private int maxBodySize = 0;
 }
@@ -1,17 +1,27 @@
 package searchengine.controllers;
 
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import searchengine.dto.ApiResponse;
+import searchengine.dto.IndexJobResponse;
 import searchengine.dto.SearchFilter;
+import searchengine.dto.SuggestResponse;
 import searchengine.dto.statistics.StatisticsResponse;
+import searchengine.index.IndexSnapshots;
 import searchengine.services.IndexingService;
 import searchengine.services.SearchService;
 import searchengine.services.StatisticsService;
+import searchengine.services.SuggestService;
+
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/")
@@ -21,6 +31,19 @@ public class ApiController extends CommonController {
     private final StatisticsService statisticsService;
     private final IndexingService indexingService;
     private final SearchService searchService;
+    private final SuggestService suggestService;
+    private final IndexSnapshots indexSnapshots;
+
+    @GetMapping("ready")
+    public ResponseEntity<ApiResponse> ready() {
+        if (indexSnapshots.isReady()) {
+            return ResponseEntity.ok(okResponse());
+        }
+        return new ResponseEntity<>(
+            new ApiResponse(false).setError("Индекс загружается"),
+            HttpStatus.SERVICE_UNAVAILABLE
+        );
+    }
 
     @GetMapping("statistics")
     public StatisticsResponse statistics() {
@@ -39,14 +62,37 @@ public class ApiController extends CommonController {
         return okResponse();
     }
 
+    @GetMapping("reindex")
+    public ApiResponse reindex() {
+        indexingService.reindexFromStore();
+        return okResponse();
+    }
+
     @PostMapping("indexPage")
     public ApiResponse indexPage(@RequestParam String url) {
         indexingService.indexPage(url);
         return okResponse();
     }
 
+    @PostMapping("indexPages")
+    public IndexJobResponse indexPages(@RequestBody List<String> urls) {
+        return indexingService.indexPages(urls);
+    }
+
+    @GetMapping("indexPages/{jobId}")
+    public IndexJobResponse indexJob(@PathVariable String jobId) {
+        return indexingService.getIndexJob(jobId);
+    }
+
     @GetMapping("search")
     public ApiResponse search(SearchFilter filter) {
         return searchService.search(filter);
     }
+
+    @GetMapping("suggest")
+    public SuggestResponse suggest(@RequestParam String query,
+                                   @RequestParam(required = false) String site,
+                                   @RequestParam(required = false) Integer limit) {
+        return suggestService.suggest(query, site, limit);
+    }
 }
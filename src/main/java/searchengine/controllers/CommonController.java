@@ -5,6 +5,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import searchengine.dto.ApiResponse;
 import searchengine.model.error.ApplicationError;
+import searchengine.model.error.OverloadError;
 
 public class CommonController {
 
@@ -15,6 +16,10 @@ public class CommonController {
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse> handleException(Exception ex) {
         ApiResponse response = new ApiResponse(false);
+        if (ex instanceof OverloadError) {
+            response.setError(ex.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
+        }
         if (ex instanceof ApplicationError) {
             response.setError(ex.getMessage());
             return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
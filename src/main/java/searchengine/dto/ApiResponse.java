@@ -17,6 +17,9 @@ public class ApiResponse {
 
     private boolean result;
     private int count;
+    private boolean estimated;
+    private boolean truncated;
     private List<SearchResult> data;
+    private String cursor;
     private String error;
 }
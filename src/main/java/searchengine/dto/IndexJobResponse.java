@@ -0,0 +1,21 @@
+package searchengine.dto;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Data
+@Accessors(chain = true)
+public class IndexJobResponse {
+    private boolean result;
+    private String jobId;
+    private String status;
+    private int total;
+    private int indexed;
+    private int failed;
+    private LocalDateTime started;
+    private LocalDateTime finished;
+    private Map<String, String> errors;
+}
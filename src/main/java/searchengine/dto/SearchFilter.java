@@ -10,4 +10,6 @@ public class SearchFilter {
     private String site;
     private Integer offset;
     private Integer limit;
+    private Integer timeout;
+    private String cursor;
 }
@@ -0,0 +1,14 @@
+package searchengine.dto;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+import searchengine.index.LemmaDictionary;
+
+import java.util.List;
+
+@Data
+@Accessors(chain = true)
+public class SuggestResponse {
+    private boolean result;
+    private List<LemmaDictionary.Suggestion> suggestions;
+}
@@ -0,0 +1,16 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.time.LocalDateTime;
+
+@Data
+@Accessors(chain = true)
+public class CompactionStatistics {
+    private LocalDateTime finished;
+    private long duration;
+    private long lemmas;
+    private long pages;
+    private boolean interrupted;
+}
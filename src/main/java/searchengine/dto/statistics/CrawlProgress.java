@@ -0,0 +1,17 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class CrawlProgress {
+    private int queued;
+    private int inFlight;
+    private long processed;
+    private int retrying;
+    private int concurrency;
+    private long latency;
+    private double errorRate;
+    private String circuit;
+}
@@ -15,4 +15,6 @@ public class DetailedStatisticsItem {
     private String error;
     private long pages;
     private long lemmas;
+    private long offHeap;
+    private CrawlProgress crawl;
 }
@@ -0,0 +1,15 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class MemoryStatistics {
+    private long heapUsed;
+    private long heapMax;
+    private long dictionaryHeap;
+    private long dictionaryMapped;
+    private long postingsOffHeap;
+    private long directAllocated;
+}
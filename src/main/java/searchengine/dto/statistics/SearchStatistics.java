@@ -0,0 +1,13 @@
+package searchengine.dto.statistics;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+public class SearchStatistics {
+    private int concurrencyLimit;
+    private int inFlight;
+    private long rejected;
+    private long coalesced;
+}
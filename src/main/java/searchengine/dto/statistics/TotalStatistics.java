@@ -10,4 +10,7 @@ public class TotalStatistics {
     private long pages;
     private long lemmas;
     private boolean indexing = false;
+    private MemoryStatistics memory;
+    private SearchStatistics search;
+    private CompactionStatistics compaction;
 }
@@ -0,0 +1,24 @@
+package searchengine.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class Bm25Scorer {
+
+    private final double k1;
+    private final double b;
+
+    public double idf(long documentFrequency, long documents) {
+        double df = Math.min(documentFrequency, documents);
+        return Math.log(1 + (documents - df + 0.5) / (df + 0.5));
+    }
+
+    public double score(double termFrequency, double idf,
+                        int length, double averageLength) {
+        double norm = averageLength > 0 && length > 0 ?
+            1 - b + b * length / averageLength : 1;
+        return idf * termFrequency * (k1 + 1) / (termFrequency + k1 * norm);
+    }
+}
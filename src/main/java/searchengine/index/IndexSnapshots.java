@@ -0,0 +1,185 @@
+package searchengine.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.model.Site;
+import searchengine.model.event.DictionaryBuiltEvent;
+import searchengine.model.event.PostingsBuiltEvent;
+import searchengine.model.event.SiteIndexedEvent;
+import searchengine.repository.SiteRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndexSnapshots {
+
+    private final SearchSettings searchSettings;
+    private final SiteRepository siteRepository;
+    private final IndexStatistics indexStatistics;
+    private final LemmaDictionaries lemmaDictionaries;
+    private final StopLemmas stopLemmas;
+    private final PostingStore postingStore;
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "snapshot-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready && postingStore.isReady();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        Map<Long, SiteStatistics> statistics = new HashMap<>();
+        List<Long> stale = new ArrayList<>();
+        List<Long> restored = new ArrayList<>();
+        for (Site site : siteRepository.findAll()) {
+            SiteSnapshot snapshot = read(site);
+            if (snapshot == null || snapshot.statusTime() < epochMillis(site.getStatusTime())) {
+                if (snapshot != null && snapshot.postings() != null) {
+                    snapshot.postings().release();
+                }
+                stale.add(site.getId());
+                continue;
+            }
+            lemmaDictionaries.put(site.getId(), snapshot.dictionary(), site.getStatusTime());
+            stopLemmas.put(site.getId(), snapshot.stopLemmas());
+            statistics.put(site.getId(), snapshot.statistics());
+            if (snapshot.postings() != null && postingStore.restore(snapshot.postings())) {
+                restored.add(site.getId());
+            }
+        }
+        if (stale.isEmpty()) {
+            indexStatistics.restore(statistics);
+        }
+        postingStore.load(restored);
+        ready = true;
+        log.info("Loaded " + statistics.size() + " index snapshots in " +
+            (System.currentTimeMillis() - started) + " ms, postings of " + restored +
+            ", stale: " + stale);
+        stale.forEach(this::schedule);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @EventListener
+    public void onSiteIndexed(SiteIndexedEvent event) {
+        schedule(event.getSiteId());
+    }
+
+    @EventListener
+    public void onPostingsBuilt(PostingsBuiltEvent event) {
+        schedule(event.getSiteId());
+    }
+
+    @EventListener
+    public void onDictionaryBuilt(DictionaryBuiltEvent event) {
+        schedule(event.getSiteId());
+    }
+
+    public void remove(Long siteId) {
+        try {
+            Files.deleteIfExists(file(siteId));
+        } catch (IOException ex) {
+            log.error("Deleting snapshot of site " + siteId + " failed", ex);
+        }
+    }
+
+    private void schedule(Long siteId) {
+        if (queued.add(siteId)) {
+            writer.execute(() -> {
+                queued.remove(siteId);
+                write(siteId);
+            });
+        }
+    }
+
+    private void write(Long siteId) {
+        Site site = siteRepository.findById(siteId).orElse(null);
+        if (site == null) {
+            return;
+        }
+        LemmaDictionary dictionary = lemmaDictionaries.get(siteId);
+        if (!lemmaDictionaries.isCurrent(siteId, site.getStatusTime())) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        PostingGeneration postings = postingStore.acquire(siteId);
+        try {
+            SiteSnapshot snapshot = new SiteSnapshot(
+                siteId, epochMillis(site.getStatusTime()),
+                indexStatistics.get(siteId),
+                stopLemmas.get(siteId),
+                dictionary,
+                postings != null && Objects.equals(postings.getEpoch(), site.getStatusTime()) ?
+                    postings : null
+            );
+            SnapshotFile.write(file(siteId), snapshot);
+            log.info("Wrote snapshot of site " + siteId + " in " +
+                (System.currentTimeMillis() - started) + " ms" +
+                (snapshot.postings() != null ? " with " + snapshot.postings().getPostings() +
+                    " postings" : ""));
+        } catch (Exception ex) {
+            log.error("Writing snapshot of site " + siteId + " failed", ex);
+        } finally {
+            if (postings != null) {
+                postings.release();
+            }
+        }
+    }
+
+    private SiteSnapshot read(Site site) {
+        Long siteId = site.getId();
+        Path file = file(siteId);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            SiteSnapshot snapshot = SnapshotFile.read(file, site.getStatusTime());
+            if (snapshot.siteId() != siteId) {
+                if (snapshot.postings() != null) {
+                    snapshot.postings().release();
+                }
+                return null;
+            }
+            return snapshot;
+        } catch (Exception ex) {
+            log.warn("Ignoring snapshot of site " + siteId + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    private Path file(Long siteId) {
+        return Paths.get(searchSettings.getSnapshotDir(), "site-" + siteId + ".snap");
+    }
+
+    private long epochMillis(LocalDateTime time) {
+        return time == null ? 0 :
+            time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
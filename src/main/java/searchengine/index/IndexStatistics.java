@@ -0,0 +1,63 @@
+package searchengine.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.repository.SitePageRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IndexStatistics {
+
+    private final SitePageRepository sitePageRepository;
+    private volatile Map<Long, SiteStatistics> sites = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    public SiteStatistics get(Long siteId) {
+        if (!loaded) {
+            reload();
+        }
+        return sites.computeIfAbsent(siteId, k -> new SiteStatistics());
+    }
+
+    public List<Long> siteIds() {
+        if (!loaded) {
+            reload();
+        }
+        return List.copyOf(sites.keySet());
+    }
+
+    public void reset(Long siteId) {
+        sites.put(siteId, new SiteStatistics());
+    }
+
+    public void remove(Long siteId) {
+        sites.remove(siteId);
+    }
+
+    public synchronized void restore(Map<Long, SiteStatistics> statistics) {
+        sites = new ConcurrentHashMap<>(statistics);
+        loaded = true;
+    }
+
+    public synchronized void reload() {
+        Map<Long, SiteStatistics> actual = new ConcurrentHashMap<>();
+        for (Object[] row : sitePageRepository.lengthStatistics()) {
+            actual.put(
+                ((Number) row[0]).longValue(),
+                new SiteStatistics(
+                    ((Number) row[1]).longValue(),
+                    ((Number) row[2]).longValue()
+                )
+            );
+        }
+        sites = actual;
+        loaded = true;
+        log.info("Loaded index statistics for " + actual.size() + " sites");
+    }
+}
@@ -0,0 +1,117 @@
+package searchengine.index;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.model.Site;
+import searchengine.model.event.DictionaryBuiltEvent;
+import searchengine.model.event.SiteIndexedEvent;
+import searchengine.repository.JdbcRepository;
+import searchengine.repository.SiteRepository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LemmaDictionaries {
+
+    private final JdbcRepository jdbcRepository;
+    private final SiteRepository siteRepository;
+    private final SearchSettings searchSettings;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, LemmaDictionary> dictionaries = new ConcurrentHashMap<>();
+    private final Map<Long, LocalDateTime> epochs = new ConcurrentHashMap<>();
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService builder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "dictionary-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LemmaDictionary get(Long siteId) {
+        return dictionaries.computeIfAbsent(siteId, this::build);
+    }
+
+    public boolean isCurrent(Long siteId, LocalDateTime statusTime) {
+        return Objects.equals(epochs.get(siteId), statusTime);
+    }
+
+    @EventListener
+    public void onSiteIndexed(SiteIndexedEvent event) {
+        Long siteId = event.getSiteId();
+        if (queued.add(siteId)) {
+            builder.schedule(() -> {
+                queued.remove(siteId);
+                rebuild(siteId);
+            }, searchSettings.getDictionaryRebuildDelay(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void put(Long siteId, LemmaDictionary dictionary, LocalDateTime epoch) {
+        dictionaries.put(siteId, dictionary);
+        setEpoch(siteId, epoch);
+    }
+
+    public void remove(Long siteId) {
+        dictionaries.remove(siteId);
+        epochs.remove(siteId);
+    }
+
+    public long memoryBytes() {
+        return dictionaries.values().stream().mapToLong(LemmaDictionary::memoryBytes).sum();
+    }
+
+    public long mappedBytes() {
+        return dictionaries.values().stream().mapToLong(LemmaDictionary::mappedBytes).sum();
+    }
+
+    @PreDestroy
+    public void close() {
+        builder.shutdownNow();
+    }
+
+    private void rebuild(Long siteId) {
+        try {
+            dictionaries.put(siteId, build(siteId));
+            eventPublisher.publishEvent(new DictionaryBuiltEvent(siteId));
+        } catch (Exception ex) {
+            log.error("Building lemma dictionary of site " + siteId + " failed", ex);
+        }
+    }
+
+    private LemmaDictionary build(Long siteId) {
+        long started = System.currentTimeMillis();
+        LocalDateTime epoch = siteRepository.findById(siteId)
+            .map(Site::getStatusTime)
+            .orElse(null);
+        Map<String, Integer> weights = new HashMap<>();
+        jdbcRepository.streamLemmas(siteId, weights::put);
+        LemmaDictionary dictionary = LemmaDictionary.build(weights);
+        setEpoch(siteId, epoch);
+        log.info("Built lemma dictionary for site " + siteId + ": " +
+            dictionary.size() + " lemmas, " + dictionary.memoryBytes() + " bytes in " +
+            (System.currentTimeMillis() - started) + " ms");
+        return dictionary;
+    }
+
+    private void setEpoch(Long siteId, LocalDateTime epoch) {
+        if (epoch != null) {
+            epochs.put(siteId, epoch);
+        } else {
+            epochs.remove(siteId);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package searchengine.index;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+public class LemmaDictionary {
+
+    private static final int BLOCK_SIZE = 16;
+    private static final int MAX_LENGTH = 255;
+    private static final int LATIN_OFFSET = 1;
+    private static final int CYRILLIC_OFFSET = 27;
+    private static final byte YO = 59;
+
+    private final ByteBuffer data;
+    private final int[] blockOffsets;
+    private final int[] blockMaxWeight;
+    private final int size;
+
+    LemmaDictionary(ByteBuffer data, int[] blockOffsets,
+                    int[] blockMaxWeight, int size) {
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.blockMaxWeight = blockMaxWeight;
+        this.size = size;
+    }
+
+    public static LemmaDictionary build(Map<String, Integer> weights) {
+        List<Entry> entries = new ArrayList<>(weights.size());
+        weights.forEach((lemma, weight) -> {
+            byte[] codes = encode(lemma);
+            if (codes != null && codes.length > 0) {
+                entries.add(new Entry(codes, weight));
+            }
+        });
+        entries.sort((a, b) -> Arrays.compare(a.codes, b.codes));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(entries.size() * 8);
+        int blocks = (entries.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int[] blockOffsets = new int[blocks];
+        int[] blockMaxWeight = new int[blocks];
+        byte[] previous = new byte[0];
+        for (int i = 0; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            int block = i / BLOCK_SIZE;
+            int shared = 0;
+            if (i % BLOCK_SIZE == 0) {
+                blockOffsets[block] = out.size();
+            } else {
+                shared = Arrays.mismatch(previous, entry.codes);
+                shared = shared < 0 ? previous.length : shared;
+            }
+            blockMaxWeight[block] = Math.max(blockMaxWeight[block], entry.weight);
+            out.write(shared);
+            out.write(entry.codes.length - shared);
+            out.write(entry.codes, shared, entry.codes.length - shared);
+            writeVarInt(out, entry.weight);
+            previous = entry.codes;
+        }
+        return new LemmaDictionary(
+            ByteBuffer.wrap(out.toByteArray()), blockOffsets, blockMaxWeight, entries.size()
+        );
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long memoryBytes() {
+        return (data.isDirect() ? 0 : data.capacity()) + 8L * blockOffsets.length;
+    }
+
+    public long mappedBytes() {
+        return data.isDirect() ? data.capacity() : 0;
+    }
+
+    ByteBuffer data() {
+        return data.duplicate();
+    }
+
+    int[] blockOffsets() {
+        return blockOffsets;
+    }
+
+    int[] blockMaxWeight() {
+        return blockMaxWeight;
+    }
+
+    public int weight(String lemma) {
+        byte[] codes = encode(lemma);
+        if (codes == null || size == 0) {
+            return 0;
+        }
+        Cursor cursor = new Cursor(startBlock(codes));
+        while (cursor.next()) {
+            int compare = Arrays.compare(cursor.codes, 0, cursor.length, codes, 0, codes.length);
+            if (compare == 0) {
+                return cursor.weight;
+            }
+            if (compare > 0) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    public List<Suggestion> prefix(String prefix, int limit) {
+        byte[] codes = encode(prefix);
+        List<Suggestion> result = new ArrayList<>();
+        if (codes == null || size == 0 || limit <= 0) {
+            return result;
+        }
+        PriorityQueue<Suggestion> top = new PriorityQueue<>(
+            Comparator.comparingInt(Suggestion::weight)
+        );
+        int endBlock = endBlock(codes);
+        for (int block = startBlock(codes); block < endBlock; block++) {
+            if (top.size() == limit && blockMaxWeight[block] <= top.peek().weight()) {
+                continue;
+            }
+            Cursor cursor = new Cursor(block);
+            for (int i = 0; i < BLOCK_SIZE && cursor.next(); i++) {
+                if (comparePrefix(cursor.codes, cursor.length, codes) != 0) {
+                    continue;
+                }
+                if (top.size() < limit) {
+                    top.add(new Suggestion(cursor.lemma(), cursor.weight));
+                } else if (cursor.weight > top.peek().weight()) {
+                    top.poll();
+                    top.add(new Suggestion(cursor.lemma(), cursor.weight));
+                }
+            }
+        }
+        result.addAll(top);
+        result.sort(Comparator.comparingInt(Suggestion::weight).reversed());
+        return result;
+    }
+
+    public List<Match> fuzzy(String word, int maxEdits, int limit) {
+        byte[] target = encode(word);
+        List<Match> matches = new ArrayList<>();
+        if (target == null || size == 0 || limit <= 0) {
+            return matches;
+        }
+        int n = target.length;
+        int dead = maxEdits + 1;
+        int[][] rows = new int[MAX_LENGTH + 1][n + 2];
+        for (int j = 0; j <= n + 1; j++) {
+            rows[0][j] = Math.min(j, dead);
+        }
+        int prunedDepth = Integer.MAX_VALUE;
+        Cursor head = new Cursor(0);
+        Cursor cursor = new Cursor(0);
+        for (int block = 0; block < blockOffsets.length; block++) {
+            if (prunedDepth != Integer.MAX_VALUE && block + 1 < blockOffsets.length) {
+                head.seek(block + 1).next();
+                if (head.length >= prunedDepth && Arrays.equals(
+                    head.codes, 0, prunedDepth, cursor.codes, 0, prunedDepth)) {
+                    block = endBlock(cursor.codes, prunedDepth, head) - 1;
+                }
+            }
+            cursor.seek(block);
+            for (int i = 0; i < BLOCK_SIZE && cursor.next(); i++) {
+                int length = cursor.length;
+                if (cursor.shared >= prunedDepth) {
+                    continue;
+                }
+                prunedDepth = Integer.MAX_VALUE;
+                for (int depth = cursor.shared + 1; depth <= length; depth++) {
+                    if (!advance(rows[depth - 1], rows[depth], depth,
+                        cursor.codes[depth - 1], target, maxEdits)) {
+                        prunedDepth = depth;
+                        break;
+                    }
+                }
+                if (prunedDepth == Integer.MAX_VALUE &&
+                    Math.abs(length - n) <= maxEdits && rows[length][n] <= maxEdits) {
+                    matches.add(new Match(cursor.lemma(), rows[length][n], cursor.weight));
+                }
+            }
+        }
+        matches.sort(
+            Comparator.comparingInt(Match::distance)
+                .thenComparing(Comparator.comparingInt(Match::weight).reversed())
+        );
+        return matches.size() > limit ? matches.subList(0, limit) : matches;
+    }
+
+    private static boolean advance(int[] previous, int[] row, int depth,
+                                   byte code, byte[] target, int maxEdits) {
+        int dead = maxEdits + 1;
+        int n = target.length;
+        int low = Math.max(1, depth - maxEdits);
+        int high = Math.min(n, depth + maxEdits);
+        row[low - 1] = low == 1 ? Math.min(depth, dead) : dead;
+        int min = row[low - 1];
+        for (int j = low; j <= high; j++) {
+            int cost = code == target[j - 1] ? 0 : 1;
+            int value = Math.min(
+                Math.min(previous[j] + 1, row[j - 1] + 1),
+                previous[j - 1] + cost
+            );
+            row[j] = Math.min(value, dead);
+            min = Math.min(min, row[j]);
+        }
+        if (high < n) {
+            row[high + 1] = dead;
+        }
+        return min <= maxEdits;
+    }
+
+    private int startBlock(byte[] codes) {
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        int found = 0;
+        Cursor cursor = new Cursor(0);
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            cursor.seek(middle).next();
+            if (Arrays.compare(cursor.codes, 0, cursor.length, codes, 0, codes.length) < 0) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    private int endBlock(byte[] codes) {
+        return endBlock(codes, codes.length, new Cursor(0));
+    }
+
+    private int endBlock(byte[] codes, int length, Cursor cursor) {
+        int low = 0;
+        int high = blockOffsets.length - 1;
+        int found = blockOffsets.length;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            cursor.seek(middle).next();
+            if (comparePrefix(cursor.codes, cursor.length, codes, length) > 0) {
+                found = middle;
+                high = middle - 1;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return found;
+    }
+
+    private static int comparePrefix(byte[] codes, int length, byte[] prefix) {
+        return comparePrefix(codes, length, prefix, prefix.length);
+    }
+
+    private static int comparePrefix(byte[] codes, int length, byte[] prefix, int prefixLength) {
+        int common = Math.min(length, prefixLength);
+        int compare = Arrays.compare(codes, 0, common, prefix, 0, common);
+        if (compare != 0) {
+            return compare;
+        }
+        return length < prefixLength ? -1 : 0;
+    }
+
+    static byte[] encode(String word) {
+        if (word == null || word.length() > MAX_LENGTH) {
+            return null;
+        }
+        byte[] codes = new byte[word.length()];
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c >= 'a' && c <= 'z') {
+                codes[i] = (byte) (c - 'a' + LATIN_OFFSET);
+            } else if (c >= 'а' && c <= 'я') {
+                codes[i] = (byte) (c - 'а' + CYRILLIC_OFFSET);
+            } else if (c == 'ё') {
+                codes[i] = YO;
+            } else {
+                return null;
+            }
+        }
+        return codes;
+    }
+
+    static String decode(byte[] codes, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            int code = codes[i];
+            if (code == YO) {
+                chars[i] = 'ё';
+            } else if (code >= CYRILLIC_OFFSET) {
+                chars[i] = (char) ('а' + code - CYRILLIC_OFFSET);
+            } else {
+                chars[i] = (char) ('a' + code - LATIN_OFFSET);
+            }
+        }
+        return new String(chars);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    public record Suggestion(String lemma, int weight) {
+    }
+
+    public record Match(String lemma, int distance, int weight) {
+    }
+
+    private record Entry(byte[] codes, int weight) {
+    }
+
+    private class Cursor {
+
+        private final byte[] codes = new byte[MAX_LENGTH];
+        private int length;
+        private int shared;
+        private int weight;
+        private int offset;
+        private int index;
+
+        private Cursor(int block) {
+            seek(block);
+        }
+
+        private Cursor seek(int block) {
+            offset = blockOffsets[block];
+            index = block * BLOCK_SIZE;
+            return this;
+        }
+
+        private boolean next() {
+            if (index >= size) {
+                return false;
+            }
+            shared = data.get(offset++) & 0xFF;
+            int suffix = data.get(offset++) & 0xFF;
+            data.get(offset, codes, shared, suffix);
+            offset += suffix;
+            length = shared + suffix;
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data.get(offset++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            weight = value;
+            index++;
+            return true;
+        }
+
+        private String lemma() {
+            return decode(codes, length);
+        }
+    }
+}
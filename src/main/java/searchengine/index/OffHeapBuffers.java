@@ -0,0 +1,58 @@
+package searchengine.index;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class OffHeapBuffers {
+
+    private static final AtomicLong ALLOCATED = new AtomicLong();
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (Exception ex) {
+            log.warn("Explicit release of direct buffers is unavailable, relying on GC");
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    public static ByteBuffer allocate(int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+        ALLOCATED.addAndGet(capacity);
+        return buffer;
+    }
+
+    public static void free(ByteBuffer buffer) {
+        ALLOCATED.addAndGet(-buffer.capacity());
+        unmap(buffer);
+    }
+
+    public static void unmap(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (Exception ex) {
+            log.warn("Releasing direct buffer failed", ex);
+        }
+    }
+
+    public static long allocated() {
+        return ALLOCATED.get();
+    }
+}
@@ -0,0 +1,361 @@
+package searchengine.index;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PostingGeneration {
+
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+    private static final int SEGMENT_SIZE = 32 << 20;
+    private static final int ENTRY_SIZE = Long.BYTES + 3 * Integer.BYTES;
+
+    private final long id = GENERATIONS.incrementAndGet();
+    private final Long siteId;
+    private final List<ByteBuffer> segments;
+    private final ByteBuffer directory;
+    private final int lemmas;
+    private final long postings;
+    private final LocalDateTime epoch;
+    private final boolean mapped;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private PostingGeneration(Long siteId, List<ByteBuffer> segments, ByteBuffer directory,
+                              int lemmas, long postings, LocalDateTime epoch, boolean mapped) {
+        this.siteId = siteId;
+        this.segments = segments;
+        this.directory = directory;
+        this.lemmas = lemmas;
+        this.postings = postings;
+        this.epoch = epoch;
+        this.mapped = mapped;
+    }
+
+    public static Builder builder(Long siteId) {
+        return new Builder(siteId);
+    }
+
+    static PostingGeneration mapped(Long siteId, List<ByteBuffer> segments, ByteBuffer directory,
+                                    int lemmas, long postings, LocalDateTime epoch) {
+        return new PostingGeneration(siteId, segments, directory, lemmas, postings, epoch, true);
+    }
+
+    List<ByteBuffer> segments() {
+        return segments;
+    }
+
+    ByteBuffer directory() {
+        return directory;
+    }
+
+    int lemmas() {
+        return lemmas;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Long getSiteId() {
+        return siteId;
+    }
+
+    public long getPostings() {
+        return postings;
+    }
+
+    public LocalDateTime getEpoch() {
+        return epoch;
+    }
+
+    public boolean isMapped() {
+        return mapped;
+    }
+
+    public long offHeapBytes() {
+        long bytes = directory.capacity();
+        for (ByteBuffer segment : segments) {
+            bytes += segment.capacity();
+        }
+        return bytes;
+    }
+
+    public boolean acquire() {
+        while (true) {
+            int count = references.get();
+            if (count <= 0) {
+                return false;
+            }
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            if (mapped) {
+                segments.forEach(OffHeapBuffers::unmap);
+                OffHeapBuffers.unmap(directory);
+            } else {
+                segments.forEach(OffHeapBuffers::free);
+                OffHeapBuffers.free(directory);
+            }
+        }
+    }
+
+    public long[] pageIds(Collection<Long> lemmaIds) {
+        long[] result = new long[0];
+        for (Long lemmaId : lemmaIds) {
+            Cursor cursor = cursor(lemmaId);
+            if (cursor == null) {
+                continue;
+            }
+            long[] ids = new long[cursor.remaining];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = cursor.next();
+            }
+            result = union(result, ids);
+        }
+        return result;
+    }
+
+    public List<Object[]> rows(Collection<Long> pageIds, Collection<Long> lemmaIds) {
+        long[] pages = pageIds.stream().mapToLong(Long::longValue).sorted().toArray();
+        List<Object[]> rows = new ArrayList<>();
+        for (Long lemmaId : lemmaIds) {
+            Cursor cursor = cursor(lemmaId);
+            int position = 0;
+            while (cursor != null && cursor.remaining > 0 && position < pages.length) {
+                long pageId = cursor.next();
+                while (position < pages.length && pages[position] < pageId) {
+                    position++;
+                }
+                if (position < pages.length && pages[position] == pageId) {
+                    rows.add(new Object[]{
+                        pageId, lemmaId, (double) cursor.rank,
+                        cursor.positions(), cursor.length
+                    });
+                }
+            }
+        }
+        return rows;
+    }
+
+    private Cursor cursor(long lemmaId) {
+        int low = 0;
+        int high = lemmas - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long value = directory.getLong(middle * ENTRY_SIZE);
+            if (value < lemmaId) {
+                low = middle + 1;
+            } else if (value > lemmaId) {
+                high = middle - 1;
+            } else {
+                int entry = middle * ENTRY_SIZE + Long.BYTES;
+                return new Cursor(
+                    segments.get(directory.getInt(entry)),
+                    directory.getInt(entry + Integer.BYTES),
+                    directory.getInt(entry + 2 * Integer.BYTES)
+                );
+            }
+        }
+        return null;
+    }
+
+    public static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[size++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static long[] union(long[] a, long[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        long[] result = new long[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < a.length || j < b.length) {
+            long next;
+            if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+                next = a[i++];
+            } else {
+                next = b[j++];
+            }
+            if (size == 0 || result[size - 1] != next) {
+                result[size++] = next;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private static class Cursor {
+
+        private final ByteBuffer segment;
+        private int offset;
+        private int remaining;
+        private long pageId;
+        private int rank;
+        private int length;
+        private int positionsOffset;
+        private int positionsLength;
+
+        private Cursor(ByteBuffer segment, int offset, int count) {
+            this.segment = segment;
+            this.offset = offset;
+            this.remaining = count;
+        }
+
+        private long next() {
+            pageId += readVarLong();
+            rank = (int) readVarLong();
+            length = (int) readVarLong();
+            positionsLength = (int) readVarLong();
+            positionsOffset = offset;
+            offset += positionsLength;
+            remaining--;
+            return pageId;
+        }
+
+        private byte[] positions() {
+            byte[] positions = new byte[positionsLength];
+            segment.get(positionsOffset, positions, 0, positionsLength);
+            return positions;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = segment.get(offset++);
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+
+    public static class Builder {
+
+        private final Long siteId;
+        private final List<ByteBuffer> segments = new ArrayList<>();
+        private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream list = new ByteArrayOutputStream();
+        private long lemmaId = -1;
+        private long previousPage;
+        private int count;
+        private int lemmas;
+        private long postings;
+
+        private Builder(Long siteId) {
+            this.siteId = siteId;
+        }
+
+        public void add(long lemmaId, long pageId, int rank, byte[] positions, int length) {
+            if (lemmaId != this.lemmaId) {
+                flush();
+                this.lemmaId = lemmaId;
+                previousPage = 0;
+            }
+            writeVarLong(pageId - previousPage);
+            writeVarLong(rank);
+            writeVarLong(length);
+            int positionsLength = positions != null ? positions.length : 0;
+            writeVarLong(positionsLength);
+            if (positionsLength > 0) {
+                list.write(positions, 0, positionsLength);
+            }
+            previousPage = pageId;
+            count++;
+            postings++;
+        }
+
+        public PostingGeneration build(LocalDateTime epoch) {
+            flush();
+            trimLastSegment();
+            byte[] bytes = entries.toByteArray();
+            ByteBuffer directory = OffHeapBuffers.allocate(Math.max(1, bytes.length));
+            directory.put(bytes).clear();
+            return new PostingGeneration(
+                siteId, segments, directory, lemmas, postings, epoch, false
+            );
+        }
+
+        public void discard() {
+            segments.forEach(OffHeapBuffers::free);
+            segments.clear();
+        }
+
+        private void trimLastSegment() {
+            if (segments.isEmpty()) {
+                return;
+            }
+            int last = segments.size() - 1;
+            ByteBuffer segment = segments.get(last);
+            if (segment.position() == segment.capacity()) {
+                return;
+            }
+            ByteBuffer trimmed = OffHeapBuffers.allocate(Math.max(1, segment.position()));
+            trimmed.put(segment.flip());
+            segments.set(last, trimmed);
+            OffHeapBuffers.free(segment);
+        }
+
+        private void flush() {
+            if (count == 0) {
+                return;
+            }
+            ByteBuffer segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            if (segment == null || segment.remaining() < list.size()) {
+                segment = OffHeapBuffers.allocate(Math.max(SEGMENT_SIZE, list.size()));
+                segments.add(segment);
+            }
+            int offset = segment.position();
+            segment.put(list.toByteArray());
+            writeEntry(lemmaId, segments.size() - 1, offset, count);
+            list.reset();
+            count = 0;
+            lemmas++;
+        }
+
+        private void writeEntry(long lemmaId, int segment, int offset, int count) {
+            ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE)
+                .putLong(lemmaId)
+                .putInt(segment)
+                .putInt(offset)
+                .putInt(count);
+            entries.write(entry.array(), 0, ENTRY_SIZE);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                list.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            list.write((int) value);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package searchengine.index;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.model.Site;
+import searchengine.model.SiteStatus;
+import searchengine.model.event.PostingsBuiltEvent;
+import searchengine.model.event.SiteIndexedEvent;
+import searchengine.repository.JdbcRepository;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.SiteRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PostingStore {
+
+    private final SearchSettings searchSettings;
+    private final SiteRepository siteRepository;
+    private final JdbcRepository jdbcRepository;
+    private final LemmaRepository lemmaRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, PostingGeneration> generations = new ConcurrentHashMap<>();
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private final Set<Long> loading = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+    private final ScheduledExecutorService builder = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "posting-builder");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PostingGeneration acquire(Long siteId) {
+        while (true) {
+            PostingGeneration generation = generations.get(siteId);
+            if (generation == null || generation.acquire()) {
+                return generation;
+            }
+        }
+    }
+
+    public long offHeapBytes() {
+        return generations.values().stream()
+            .mapToLong(PostingGeneration::offHeapBytes)
+            .sum();
+    }
+
+    public long offHeapBytes(Long siteId) {
+        PostingGeneration generation = generations.get(siteId);
+        return generation != null ? generation.offHeapBytes() : 0;
+    }
+
+    public boolean isReady() {
+        return loaded && loading.isEmpty();
+    }
+
+    public boolean restore(PostingGeneration generation) {
+        if (!searchSettings.isOffHeapPostings() ||
+            generation.getPostings() > searchSettings.getOffHeapMaxPostings()) {
+            generation.release();
+            return false;
+        }
+        PostingGeneration previous = generations.put(generation.getSiteId(), generation);
+        if (previous != null) {
+            previous.release();
+        }
+        return true;
+    }
+
+    public void load(Collection<Long> restored) {
+        if (searchSettings.isOffHeapPostings()) {
+            for (Site site : siteRepository.findAll()) {
+                if (site.getStatus() == SiteStatus.INDEXED && !restored.contains(site.getId())) {
+                    loading.add(site.getId());
+                    schedule(site.getId(), 0);
+                }
+            }
+        }
+        loaded = true;
+    }
+
+    @EventListener
+    public void onSiteIndexed(SiteIndexedEvent event) {
+        if (searchSettings.isOffHeapPostings()) {
+            schedule(event.getSiteId(), searchSettings.getPostingRebuildDelay());
+        }
+    }
+
+    public void remove(Long siteId) {
+        PostingGeneration generation = generations.remove(siteId);
+        if (generation != null) {
+            generation.release();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        builder.shutdownNow();
+        generations.keySet().forEach(this::remove);
+    }
+
+    private void schedule(Long siteId, long delay) {
+        if (queued.add(siteId)) {
+            builder.schedule(() -> {
+                queued.remove(siteId);
+                try {
+                    build(siteId);
+                } finally {
+                    loading.remove(siteId);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void build(Long siteId) {
+        long started = System.currentTimeMillis();
+        Site before = siteRepository.findById(siteId).orElse(null);
+        if (before == null || before.getStatus() != SiteStatus.INDEXED) {
+            return;
+        }
+        LocalDateTime epoch = before.getStatusTime();
+        long expected = lemmaRepository.sumFrequency(siteId);
+        if (expected > searchSettings.getOffHeapMaxPostings()) {
+            remove(siteId);
+            log.info("Site " + siteId + " has " + expected + " postings, above " +
+                searchSettings.getOffHeapMaxPostings() + ": searching it in SQL");
+            eventPublisher.publishEvent(new PostingsBuiltEvent(siteId));
+            return;
+        }
+        PostingGeneration.Builder postings = PostingGeneration.builder(siteId);
+        try {
+            jdbcRepository.streamPostings(siteId, postings::add);
+        } catch (Exception ex) {
+            postings.discard();
+            log.error("Building postings of site " + siteId + " failed", ex);
+            return;
+        }
+        PostingGeneration generation = postings.build(epoch);
+        Site site = siteRepository.findById(siteId).orElse(null);
+        if (site == null || site.getStatus() != SiteStatus.INDEXED
+            || !Objects.equals(site.getStatusTime(), epoch)) {
+            generation.release();
+            return;
+        }
+        PostingGeneration previous = generations.put(siteId, generation);
+        if (previous != null) {
+            previous.release();
+        }
+        log.info("Built posting generation " + generation.getId() + " for site " + siteId +
+            ": " + generation.getPostings() + " postings, " +
+            generation.offHeapBytes() + " off-heap bytes in " +
+            (System.currentTimeMillis() - started) + " ms");
+        eventPublisher.publishEvent(new PostingsBuiltEvent(siteId));
+    }
+}
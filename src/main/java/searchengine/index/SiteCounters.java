@@ -0,0 +1,107 @@
+package searchengine.index;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import searchengine.model.Site;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.SitePageRepository;
+import searchengine.repository.SiteRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SiteCounters {
+
+    private final SiteRepository siteRepository;
+    private final SitePageRepository sitePageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final Map<Long, Counter> pending = new ConcurrentHashMap<>();
+
+    public long getPages(Site site) {
+        persisted(site);
+        return site.getPageCount() + counter(site.getId()).pages.get();
+    }
+
+    public long getLemmas(Site site) {
+        persisted(site);
+        return site.getLemmaCount() + counter(site.getId()).lemmas.get();
+    }
+
+    public void addPages(Long siteId, long delta) {
+        if (delta != 0) {
+            counter(siteId).pages.addAndGet(delta);
+        }
+    }
+
+    public void addLemmas(Long siteId, long delta) {
+        if (delta != 0) {
+            counter(siteId).lemmas.addAndGet(delta);
+        }
+    }
+
+    public void reset(Long siteId) {
+        pending.remove(siteId);
+        siteRepository.updateCounters(0, 0, siteId);
+    }
+
+    public void recount(Long siteId) {
+        pending.remove(siteId);
+        log.info("Counting pages and lemmas of site " + siteId);
+        siteRepository.updateCounters(
+            sitePageRepository.countBySite(siteId),
+            lemmaRepository.countBy(siteId),
+            siteId
+        );
+    }
+
+    public void remove(Long siteId) {
+        pending.remove(siteId);
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${crawl-settings.counters-flush:10000}")
+    public void flush() {
+        pending.forEach((siteId, counter) -> {
+            long pages = counter.pages.get();
+            long lemmas = counter.lemmas.get();
+            if (pages == 0 && lemmas == 0) {
+                return;
+            }
+            try {
+                siteRepository.addCounters(pages, lemmas, siteId);
+            } catch (Exception ex) {
+                log.error("Saving counters of site " + siteId + " failed", ex);
+                return;
+            }
+            counter.pages.addAndGet(-pages);
+            counter.lemmas.addAndGet(-lemmas);
+        });
+    }
+
+    private void persisted(Site site) {
+        if (site.getPageCount() < 0 || site.getLemmaCount() < 0) {
+            recount(site.getId());
+            siteRepository.findById(site.getId()).ifPresent(
+                actual -> site.setPageCount(actual.getPageCount())
+                    .setLemmaCount(actual.getLemmaCount())
+            );
+        }
+    }
+
+    private Counter counter(Long siteId) {
+        return pending.computeIfAbsent(siteId, k -> new Counter());
+    }
+
+    private static class Counter {
+
+        private final AtomicLong pages = new AtomicLong();
+        private final AtomicLong lemmas = new AtomicLong();
+    }
+}
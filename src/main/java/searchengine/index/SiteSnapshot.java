@@ -0,0 +1,8 @@
+package searchengine.index;
+
+import java.util.Set;
+
+public record SiteSnapshot(long siteId, long statusTime, SiteStatistics statistics,
+                           Set<String> stopLemmas, LemmaDictionary dictionary,
+                           PostingGeneration postings) {
+}
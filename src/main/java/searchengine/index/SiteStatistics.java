@@ -0,0 +1,44 @@
+package searchengine.index;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SiteStatistics {
+
+    private final AtomicLong pages = new AtomicLong();
+    private final AtomicLong totalLength = new AtomicLong();
+
+    public SiteStatistics() {
+    }
+
+    public SiteStatistics(long pages, long totalLength) {
+        this.pages.set(pages);
+        this.totalLength.set(totalLength);
+    }
+
+    public long getPages() {
+        return pages.get();
+    }
+
+    public long getTotalLength() {
+        return totalLength.get();
+    }
+
+    public double getAverageLength() {
+        long count = pages.get();
+        return count > 0 ? (double) totalLength.get() / count : 0;
+    }
+
+    public void addPage(int length) {
+        if (length > 0) {
+            pages.incrementAndGet();
+            totalLength.addAndGet(length);
+        }
+    }
+
+    public void removePage(int length) {
+        if (length > 0) {
+            pages.decrementAndGet();
+            totalLength.addAndGet(-length);
+        }
+    }
+}
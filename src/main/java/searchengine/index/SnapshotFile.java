@@ -0,0 +1,259 @@
+package searchengine.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+public class SnapshotFile {
+
+    private static final int MAGIC = 0x53455350;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 6 * Long.BYTES;
+    private static final long CHECKSUM_CHUNK = 256 << 20;
+    private static final long WINDOW_SIZE = 16 << 20;
+
+    public static void write(Path file, SiteSnapshot snapshot) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(
+            file.toAbsolutePath().getParent(), file.getFileName() + ".", ".tmp"
+        );
+        try {
+            writeTo(temp, snapshot);
+            Files.move(
+                temp, file,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE
+            );
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeTo(Path temp, SiteSnapshot snapshot) throws IOException {
+        try (OutputStream raw = new BufferedOutputStream(Files.newOutputStream(temp))) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(raw, crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(snapshot.siteId());
+            out.writeLong(snapshot.statusTime());
+            out.writeLong(snapshot.statistics().getPages());
+            out.writeLong(snapshot.statistics().getTotalLength());
+
+            out.writeInt(snapshot.stopLemmas().size());
+            for (String lemma : snapshot.stopLemmas()) {
+                byte[] bytes = lemma.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }
+
+            LemmaDictionary dictionary = snapshot.dictionary();
+            int[] blockOffsets = dictionary.blockOffsets();
+            int[] blockMaxWeight = dictionary.blockMaxWeight();
+            out.writeInt(dictionary.size());
+            out.writeInt(blockOffsets.length);
+            for (int i = 0; i < blockOffsets.length; i++) {
+                out.writeInt(blockOffsets[i]);
+                out.writeInt(blockMaxWeight[i]);
+            }
+            ByteBuffer data = dictionary.data();
+            out.writeInt(data.remaining());
+            byte[] chunk = new byte[8192];
+            while (data.hasRemaining()) {
+                int length = Math.min(chunk.length, data.remaining());
+                data.get(chunk, 0, length);
+                out.write(chunk, 0, length);
+            }
+
+            PostingGeneration postings = snapshot.postings();
+            out.writeByte(postings != null ? 1 : 0);
+            if (postings != null) {
+                out.writeInt(postings.lemmas());
+                out.writeLong(postings.getPostings());
+                writeBuffer(out, postings.directory(), chunk);
+                out.writeInt(postings.segments().size());
+                for (ByteBuffer segment : postings.segments()) {
+                    writeBuffer(out, segment, chunk);
+                }
+            }
+            out.flush();
+            new DataOutputStream(raw).writeLong(crc.getValue());
+        }
+    }
+
+    public static SiteSnapshot read(Path file, LocalDateTime epoch) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE + Long.BYTES) {
+                throw new IOException("Snapshot is truncated: " + file);
+            }
+            long end = fileSize - Long.BYTES;
+            Reader in = new Reader(channel, end);
+            if (checksum(channel, end) != in.longAt(end)) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            int version = in.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            long siteId = in.getLong();
+            long statusTime = in.getLong();
+            SiteStatistics statistics = new SiteStatistics(in.getLong(), in.getLong());
+
+            int stopLemmaCount = in.getInt();
+            Set<String> stopLemmas = new HashSet<>();
+            for (int i = 0; i < stopLemmaCount; i++) {
+                byte[] bytes = new byte[in.getShort() & 0xFFFF];
+                in.get(bytes);
+                stopLemmas.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            int size = in.getInt();
+            int blocks = in.getInt();
+            int[] blockOffsets = new int[blocks];
+            int[] blockMaxWeight = new int[blocks];
+            for (int i = 0; i < blocks; i++) {
+                blockOffsets[i] = in.getInt();
+                blockMaxWeight[i] = in.getInt();
+            }
+            ByteBuffer data = in.map(in.getInt());
+            LemmaDictionary dictionary = new LemmaDictionary(
+                data, blockOffsets, blockMaxWeight, size
+            );
+
+            PostingGeneration postings = null;
+            if (in.get() != 0) {
+                int lemmas = in.getInt();
+                long postingCount = in.getLong();
+                ByteBuffer directory = in.map(in.getInt());
+                int segmentCount = in.getInt();
+                List<ByteBuffer> segments = new ArrayList<>(segmentCount);
+                for (int i = 0; i < segmentCount; i++) {
+                    segments.add(in.map(in.getInt()));
+                }
+                postings = PostingGeneration.mapped(
+                    siteId, segments, directory, lemmas, postingCount, epoch
+                );
+            }
+            return new SiteSnapshot(
+                siteId, statusTime, statistics, stopLemmas, dictionary, postings
+            );
+        }
+    }
+
+    private static void writeBuffer(DataOutputStream out, ByteBuffer buffer,
+                                    byte[] chunk) throws IOException {
+        ByteBuffer data = buffer.duplicate().clear();
+        out.writeInt(data.remaining());
+        while (data.hasRemaining()) {
+            int length = Math.min(chunk.length, data.remaining());
+            data.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+
+    private static long checksum(FileChannel channel, long end) throws IOException {
+        CRC32 crc = new CRC32();
+        for (long position = 0; position < end; position += CHECKSUM_CHUNK) {
+            long length = Math.min(CHECKSUM_CHUNK, end - position);
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            crc.update(chunk);
+            OffHeapBuffers.unmap(chunk);
+        }
+        return crc.getValue();
+    }
+
+    private static class Reader {
+
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+        private long windowStart;
+        private ByteBuffer window = ByteBuffer.allocate(0);
+
+        private Reader(FileChannel channel, long end) {
+            this.channel = channel;
+            this.end = end;
+        }
+
+        private long longAt(long offset) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Snapshot is truncated");
+                }
+            }
+            return buffer.flip().getLong();
+        }
+
+        private byte get() throws IOException {
+            return window(Byte.BYTES).get();
+        }
+
+        private short getShort() throws IOException {
+            return window(Short.BYTES).getShort();
+        }
+
+        private int getInt() throws IOException {
+            return window(Integer.BYTES).getInt();
+        }
+
+        private long getLong() throws IOException {
+            return window(Long.BYTES).getLong();
+        }
+
+        private void get(byte[] bytes) throws IOException {
+            window(bytes.length).get(bytes);
+        }
+
+        private ByteBuffer map(int length) throws IOException {
+            checkRemaining(length);
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            position += length;
+            return buffer;
+        }
+
+        private ByteBuffer window(int length) throws IOException {
+            checkRemaining(length);
+            long offset = position - windowStart;
+            if (offset < 0 || offset + length > window.limit()) {
+                if (window instanceof MappedByteBuffer mapped) {
+                    OffHeapBuffers.unmap(mapped);
+                }
+                windowStart = position;
+                window = channel.map(
+                    FileChannel.MapMode.READ_ONLY, position,
+                    Math.max(length, Math.min(WINDOW_SIZE, end - position))
+                );
+                offset = 0;
+            }
+            position += length;
+            return window.position((int) offset);
+        }
+
+        private void checkRemaining(int length) throws IOException {
+            if (length < 0 || position + length > end) {
+                throw new IOException("Snapshot is truncated");
+            }
+        }
+    }
+}
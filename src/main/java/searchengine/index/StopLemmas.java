@@ -0,0 +1,60 @@
+package searchengine.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.model.Lemma;
+import searchengine.model.event.SiteIndexedEvent;
+import searchengine.repository.LemmaRepository;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StopLemmas {
+
+    private final LemmaRepository lemmaRepository;
+    private final IndexStatistics indexStatistics;
+    private final SearchSettings searchSettings;
+    private final Map<Long, Set<String>> lemmasBySite = new ConcurrentHashMap<>();
+
+    public boolean isStopLemma(Lemma lemma) {
+        return get(lemma.getSite().getId()).contains(lemma.getLemma());
+    }
+
+    public Set<String> get(Long siteId) {
+        return lemmasBySite.computeIfAbsent(siteId, this::load);
+    }
+
+    public void put(Long siteId, Set<String> lemmas) {
+        lemmasBySite.put(siteId, lemmas);
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onSiteIndexed(SiteIndexedEvent event) {
+        lemmasBySite.put(event.getSiteId(), load(event.getSiteId()));
+    }
+
+    private Set<String> load(Long siteId) {
+        long pages = indexStatistics.get(siteId).getPages();
+        if (pages < searchSettings.getStopLemmaMinPages()) {
+            return Set.of();
+        }
+        long minFrequency = (long) Math.ceil(pages * searchSettings.getStopLemmaShare());
+        Set<String> lemmas = new HashSet<>(
+            lemmaRepository.getFrequent(siteId, Math.max(1, minFrequency))
+        );
+        log.info("Site " + siteId + ": " + lemmas.size() +
+            " stop lemmas above " + minFrequency + " of " + pages + " pages");
+        return lemmas;
+    }
+}
@@ -0,0 +1,29 @@
+package searchengine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@Name("searchengine.DbBatch")
+@Label("Database Batch")
+@Category({"Search Engine", "Database"})
+@Description("Batched write through JdbcRepository")
+@StackTrace(false)
+@Setter
+@Accessors(chain = true)
+public class DbBatchEvent extends Event {
+
+    @Label("Table")
+    private String table;
+
+    @Label("Rows")
+    private int rows;
+
+    @Label("Inserted")
+    private int inserted;
+}
@@ -0,0 +1,40 @@
+package searchengine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@Name("searchengine.Lemmatization")
+@Label("Lemmatization")
+@Category({"Search Engine", "Crawl"})
+@Description("Lemmatization of page text")
+@StackTrace(false)
+@Setter
+@Accessors(chain = true)
+public class LemmatizationEvent extends Event {
+
+    @Label("URL")
+    private String url;
+
+    @Label("Site")
+    private String site;
+
+    @Label("Text Size")
+    @DataAmount
+    private long size;
+
+    @Label("Words")
+    private int words;
+
+    @Label("Lemmas")
+    private int lemmas;
+
+    @Label("Language")
+    private String language;
+}
@@ -0,0 +1,34 @@
+package searchengine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@Name("searchengine.PageFetch")
+@Label("Page Fetch")
+@Category({"Search Engine", "Crawl"})
+@Description("HTTP request for a crawled page")
+@StackTrace(false)
+@Setter
+@Accessors(chain = true)
+public class PageFetchEvent extends Event {
+
+    @Label("URL")
+    private String url;
+
+    @Label("Site")
+    private String site;
+
+    @Label("Status")
+    private int status;
+
+    @Label("Content Length")
+    @DataAmount
+    private long size;
+}
@@ -0,0 +1,31 @@
+package searchengine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@Name("searchengine.PageParse")
+@Label("Page Parse")
+@Category({"Search Engine", "Crawl"})
+@Description("HTML parsing of a fetched page")
+@StackTrace(false)
+@Setter
+@Accessors(chain = true)
+public class PageParseEvent extends Event {
+
+    @Label("URL")
+    private String url;
+
+    @Label("Site")
+    private String site;
+
+    @Label("HTML Size")
+    @DataAmount
+    private long size;
+}
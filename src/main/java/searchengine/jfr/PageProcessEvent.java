@@ -0,0 +1,29 @@
+package searchengine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@Name("searchengine.PageProcess")
+@Label("Page Process")
+@Category({"Search Engine", "Crawl"})
+@Description("Full processing of a crawled page from request to index write")
+@StackTrace(false)
+@Setter
+@Accessors(chain = true)
+public class PageProcessEvent extends Event {
+
+    @Label("URL")
+    private String url;
+
+    @Label("Site")
+    private String site;
+
+    @Label("Outcome")
+    private String outcome;
+}
@@ -0,0 +1,32 @@
+package searchengine.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@Name("searchengine.SearchStage")
+@Label("Search Stage")
+@Category({"Search Engine", "Search"})
+@Description("One stage of a search request")
+@StackTrace(false)
+@Setter
+@Accessors(chain = true)
+public class SearchStageEvent extends Event {
+
+    @Label("Query")
+    private String query;
+
+    @Label("Site")
+    private String site;
+
+    @Label("Stage")
+    private String stage;
+
+    @Label("Results")
+    private int size;
+}
@@ -24,7 +24,10 @@ import lombok.experimental.Accessors;
     name = "`index`",
     uniqueConstraints = {
         @UniqueConstraint(columnNames = {"page_id", "lemma_id"})
-    }
+    },
+    indexes = @jakarta.persistence.Index(
+        name = "idx_lemma_page_rank", columnList = "lemma_id, page_id, index_rank"
+    )
 )
 public class Index {
 
@@ -57,4 +60,7 @@ public class Index {
 
     @Column(name = "index_rank", nullable = false)
     private double rank;
+
+    @Column(name = "positions", columnDefinition = "blob")
+    private byte[] positions;
 }
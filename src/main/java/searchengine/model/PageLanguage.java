@@ -0,0 +1,18 @@
+package searchengine.model;
+
+public enum PageLanguage {
+    RUSSIAN,
+    ENGLISH,
+    MIXED,
+    NONE;
+
+    public PageLanguage and(PageLanguage other) {
+        if (this == MIXED) {
+            return other;
+        }
+        if (other == MIXED) {
+            return this;
+        }
+        return this == other ? this : NONE;
+    }
+}
@@ -12,6 +12,7 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDateTime;
 
@@ -52,4 +53,12 @@ public class Site {
 
     @Column(name = "last_error")
     private String lastError;
+
+    @Column(name = "page_count", nullable = false)
+    @ColumnDefault("-1")
+    private long pageCount;
+
+    @Column(name = "lemma_count", nullable = false)
+    @ColumnDefault("-1")
+    private long lemmaCount;
 }
@@ -0,0 +1,36 @@
+package searchengine.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@Accessors(chain = true)
+@Entity
+@Table(name = "site_lease")
+public class SiteLease {
+
+    @Id
+    @Column(name = "site_id", nullable = false)
+    private Long siteId;
+
+    @Column(name = "owner")
+    private String owner;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    @Column(name = "pending", nullable = false)
+    @ColumnDefault("0")
+    private boolean pending;
+}
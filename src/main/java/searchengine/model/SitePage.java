@@ -3,6 +3,8 @@ package searchengine.model;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -59,4 +61,12 @@ public class SitePage {
             "COLLATE utf8mb4_general_ci"
     )
     private String content;
+
+    @Column(name = "length", nullable = false)
+    @ColumnDefault("0")
+    private int length;
+
+    @Enumerated(value = EnumType.STRING)
+    @Column(name = "language")
+    private PageLanguage language;
 }
@@ -0,0 +1,8 @@
+package searchengine.model.error;
+
+public class OverloadError extends ApplicationError {
+
+    public OverloadError(String message) {
+        super(message);
+    }
+}
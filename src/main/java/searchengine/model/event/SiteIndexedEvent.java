@@ -0,0 +1,10 @@
+package searchengine.model.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class SiteIndexedEvent {
+    private final Long siteId;
+}
@@ -7,31 +7,26 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.Index;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 @Transactional
 public interface IndexRepository extends JpaRepository<Index, Long> {
 
+    @Modifying
     @Query(
-        value = "SELECT i.page.id, SUM(i.rank) FROM Index i " +
-            "WHERE i.page.id IN (:pageIds) AND i.lemma.id IN (:lemmaIds) " +
-            "GROUP BY i.page.id"
-    )
-    List<Object[]> relevanceByLemmas(List<Long> pageIds, List<Long> lemmaIds);
-
-    @Query(
-        value = "SELECT SUM(i.rank) FROM Index i " +
-            "WHERE i.page.id IN (:pageIds)"
+        value = "DELETE FROM `index` WHERE page_id = :pageId",
+        nativeQuery = true
     )
-    int totalRelevance(List<Long> pageIds);
+    void deleteByPageId(Long pageId);
 
     @Modifying
     @Query(
-        value = "DELETE FROM `index` WHERE page_id = :pageId",
+        value = "DELETE FROM `index` WHERE page_id IN (:pageIds)",
         nativeQuery = true
     )
-    void deleteByPageId(Long pageId);
+    void deleteByPageIds(Collection<Long> pageIds);
 
     @Modifying
     @Query(
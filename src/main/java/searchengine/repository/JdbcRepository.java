@@ -2,23 +2,44 @@ package searchengine.repository;
 
 import lombok.AllArgsConstructor;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
+import searchengine.jfr.DbBatchEvent;
 import searchengine.model.Index;
 import searchengine.model.Lemma;
+import searchengine.model.PageLanguage;
+import searchengine.model.Site;
+import searchengine.model.SitePage;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Repository
 @AllArgsConstructor
 public class JdbcRepository {
 
+    public static final String LEMMA_SHADOW = "lemma_next";
+    public static final String INDEX_SHADOW = "index_next";
+    public static final String PAGE_SHADOW = "site_page_next";
+    private static final int MAX_POSITIONS_LENGTH = 64 << 20;
+
     private final JdbcTemplate jdbcTemplate;
 
-    public void insertLemmaBatch(List<Lemma> lemmas) {
-        jdbcTemplate.batchUpdate(
+    public int insertLemmaBatch(List<Lemma> lemmas) {
+        DbBatchEvent event = batchEvent("lemma", lemmas.size());
+        int[] updates = jdbcTemplate.batchUpdate(
             "INSERT INTO lemma (site_id, lemma, frequency) " +
                 "VALUES (?, ?, ?) AS new(s, l, f) " +
                 "ON DUPLICATE KEY UPDATE frequency = frequency + new.f",
@@ -38,13 +59,268 @@ public class JdbcRepository {
                 }
             }
         );
+        return commit(event, updates);
+    }
+
+    public int upsertPageBatch(List<SitePage> pages) {
+        DbBatchEvent event = batchEvent("site_page", pages.size());
+        int[] updates = jdbcTemplate.batchUpdate(
+            "INSERT INTO site_page (site_id, path, code, content, length, language) " +
+                "VALUES (?, ?, ?, ?, ?, ?) AS new(s, p, c, t, l, g) " +
+                "ON DUPLICATE KEY UPDATE code = new.c, content = new.t, " +
+                "length = new.l, language = new.g",
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    SitePage page = pages.get(i);
+                    int index = 0;
+                    ps.setLong(++index, page.getSite().getId());
+                    ps.setString(++index, page.getPath());
+                    ps.setInt(++index, page.getCode());
+                    ps.setString(++index, page.getContent());
+                    ps.setInt(++index, page.getLength());
+                    ps.setString(++index, page.getLanguage().name());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return pages.size();
+                }
+            }
+        );
+        return commit(event, updates);
     }
 
     public void insertIndexBatch(List<Index> indices) {
-        jdbcTemplate.batchUpdate(
-            "INSERT INTO `index` (lemma_id, page_id, index_rank) " +
-                "VALUES (?, ?, ?) AS new(l, p, r) " +
-                "ON DUPLICATE KEY UPDATE index_rank = index_rank + new.r",
+        insertIndexBatch("`index`", indices);
+    }
+
+    public void createShadowTables() {
+        dropShadowTables();
+        jdbcTemplate.execute("CREATE TABLE " + LEMMA_SHADOW + " LIKE lemma");
+        jdbcTemplate.execute("CREATE TABLE " + INDEX_SHADOW + " LIKE `index`");
+        jdbcTemplate.execute(
+            "CREATE TABLE " + PAGE_SHADOW + " (id BIGINT NOT NULL PRIMARY KEY, " +
+                "length INT NOT NULL, language VARCHAR(255))"
+        );
+    }
+
+    public void dropShadowTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + INDEX_SHADOW);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + LEMMA_SHADOW);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + PAGE_SHADOW);
+    }
+
+    public void insertShadowLemmaBatch(List<Lemma> lemmas) {
+        DbBatchEvent event = batchEvent(LEMMA_SHADOW, lemmas.size());
+        int[] updates = jdbcTemplate.batchUpdate(
+            "INSERT INTO " + LEMMA_SHADOW + " (id, site_id, lemma, frequency) " +
+                "VALUES (?, ?, ?, ?)",
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Lemma lemma = lemmas.get(i);
+                    int index = 0;
+                    ps.setLong(++index, lemma.getId());
+                    ps.setLong(++index, lemma.getSite().getId());
+                    ps.setString(++index, lemma.getLemma());
+                    ps.setInt(++index, lemma.getFrequency());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return lemmas.size();
+                }
+            }
+        );
+        commit(event, updates);
+    }
+
+    public void insertShadowIndexBatch(List<Index> indices) {
+        insertIndexBatch(INDEX_SHADOW, indices);
+    }
+
+    public void insertShadowPage(long pageId, int length, PageLanguage language) {
+        jdbcTemplate.update(
+            "INSERT INTO " + PAGE_SHADOW + " (id, length, language) VALUES (?, ?, ?)",
+            pageId, length, language.name()
+        );
+    }
+
+    public void swapShadowTables() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS index_old, lemma_old");
+        jdbcTemplate.execute(
+            "ALTER TABLE " + LEMMA_SHADOW + " ADD FOREIGN KEY (site_id) REFERENCES site (id)"
+        );
+        jdbcTemplate.execute(
+            "ALTER TABLE " + INDEX_SHADOW +
+                " ADD FOREIGN KEY (lemma_id) REFERENCES " + LEMMA_SHADOW + " (id)," +
+                " ADD FOREIGN KEY (page_id) REFERENCES site_page (id)"
+        );
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(
+                    "LOCK TABLES site_page WRITE, " + PAGE_SHADOW + " READ, " +
+                        "lemma WRITE, " + LEMMA_SHADOW + " WRITE, " +
+                        "`index` WRITE, " + INDEX_SHADOW + " WRITE"
+                );
+                try {
+                    statement.executeUpdate(
+                        "UPDATE site_page p JOIN " + PAGE_SHADOW + " n ON n.id = p.id " +
+                            "SET p.length = n.length, p.language = n.language"
+                    );
+                    statement.execute(
+                        "RENAME TABLE lemma TO lemma_old, " + LEMMA_SHADOW + " TO lemma, " +
+                            "`index` TO index_old, " + INDEX_SHADOW + " TO `index`"
+                    );
+                } finally {
+                    statement.execute("UNLOCK TABLES");
+                }
+            }
+            return null;
+        });
+        jdbcTemplate.execute("DROP TABLE index_old");
+        jdbcTemplate.execute("DROP TABLE lemma_old");
+        jdbcTemplate.execute("DROP TABLE " + PAGE_SHADOW);
+    }
+
+    public void analyzeTables(Collection<String> tables) {
+        if (!tables.isEmpty()) {
+            jdbcTemplate.execute("ANALYZE TABLE " + String.join(", ", tables));
+        }
+    }
+
+    public void streamPages(Consumer<SitePage> consumer) {
+        jdbcTemplate.query(
+            connection -> {
+                PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, site_id, path, code, content FROM site_page " +
+                        "WHERE code > 0 AND code < 400 AND content IS NOT NULL",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY
+                );
+                ps.setFetchSize(Integer.MIN_VALUE);
+                return ps;
+            },
+            (RowCallbackHandler) rs -> consumer.accept(
+                new SitePage()
+                    .setId(rs.getLong("id"))
+                    .setSite(new Site().setId(rs.getLong("site_id")))
+                    .setPath(rs.getString("path"))
+                    .setCode(rs.getInt("code"))
+                    .setContent(rs.getString("content"))
+            )
+        );
+    }
+
+    public void streamLemmas(Long siteId, BiConsumer<String, Integer> consumer) {
+        jdbcTemplate.query(
+            "SELECT lemma, frequency FROM lemma WHERE site_id = ? AND frequency > 0",
+            (RowCallbackHandler) rs -> consumer.accept(
+                rs.getString("lemma"), rs.getInt("frequency")
+            ),
+            siteId
+        );
+    }
+
+    public void streamPostings(Long siteId, PostingConsumer consumer) {
+        jdbcTemplate.query(
+            connection -> {
+                PreparedStatement ps = connection.prepareStatement(
+                    "SELECT i.lemma_id, i.page_id, i.index_rank, i.positions, p.length " +
+                        "FROM `index` i JOIN site_page p ON p.id = i.page_id " +
+                        "WHERE p.site_id = ? ORDER BY i.lemma_id, i.page_id",
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY
+                );
+                ps.setLong(1, siteId);
+                ps.setFetchSize(Integer.MIN_VALUE);
+                return ps;
+            },
+            (RowCallbackHandler) rs -> consumer.accept(
+                rs.getLong("lemma_id"), rs.getLong("page_id"),
+                (int) Math.round(rs.getDouble("index_rank")),
+                rs.getBytes("positions"), rs.getInt("length")
+            )
+        );
+    }
+
+    public PageScores scorePages(List<QueryLemma> lemmas, int groups, double k1, double b,
+                                 double averageLength, Double maxScore, int limit,
+                                 boolean positions) {
+        StringBuilder idf = new StringBuilder("CASE i.lemma_id");
+        StringBuilder group = new StringBuilder("CASE i.lemma_id");
+        StringBuilder ids = new StringBuilder();
+        List<Object> args = new ArrayList<>();
+        List<Object> groupArgs = new ArrayList<>();
+        for (QueryLemma lemma : lemmas) {
+            idf.append(" WHEN ? THEN ?");
+            args.add(lemma.lemmaId());
+            args.add(lemma.idf());
+            if (lemma.group() >= 0) {
+                group.append(" WHEN ? THEN ?");
+                groupArgs.add(lemma.lemmaId());
+                groupArgs.add(lemma.group());
+            }
+            ids.append(ids.length() == 0 ? "?" : ", ?");
+        }
+        args.add(k1 + 1);
+        args.add(k1);
+        args.add(averageLength);
+        args.add(b);
+        args.add(b);
+        args.add(averageLength);
+        lemmas.forEach(lemma -> args.add(lemma.lemmaId()));
+        args.addAll(groupArgs);
+        args.add(groups);
+        if (maxScore != null) {
+            args.add(maxScore);
+        }
+        args.add(limit);
+        String sql = "SELECT /*+ SET_VAR(group_concat_max_len = " + MAX_POSITIONS_LENGTH + ") */ " +
+            "i.page_id, SUM(" + idf + " END * i.index_rank * ? / " +
+            "(i.index_rank + ? * CASE WHEN ? > 0 AND p.length > 0 " +
+            "THEN 1 - ? + ? * p.length / ? ELSE 1 END)) AS score, " +
+            "COUNT(*) OVER () AS total" +
+            (positions ? ", GROUP_CONCAT(i.lemma_id, ':', HEX(i.positions) SEPARATOR ';') " +
+                "AS positions " : " ") +
+            "FROM `index` i JOIN site_page p ON p.id = i.page_id " +
+            "WHERE i.lemma_id IN (" + ids + ") " +
+            "GROUP BY i.page_id, p.length " +
+            "HAVING COUNT(DISTINCT " + group + " END) = ? " +
+            (maxScore != null ? "AND score <= ? " : "") +
+            "ORDER BY score DESC, i.page_id LIMIT ?";
+        List<PageScore> pages = new ArrayList<>();
+        long[] total = {0};
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+            pages.add(new PageScore(
+                rs.getLong("page_id"), rs.getDouble("score"),
+                positions ? positions(rs.getString("positions")) : Map.of()
+            ));
+            total[0] = rs.getLong("total");
+        }, args.toArray());
+        return new PageScores(pages, total[0]);
+    }
+
+    private static Map<Long, byte[]> positions(String value) {
+        Map<Long, byte[]> positions = new HashMap<>();
+        if (value == null || value.isEmpty()) {
+            return positions;
+        }
+        for (String entry : value.split(";")) {
+            int separator = entry.indexOf(':');
+            positions.put(
+                Long.parseLong(entry.substring(0, separator)),
+                HexFormat.of().parseHex(entry, separator + 1, entry.length())
+            );
+        }
+        return positions;
+    }
+
+    private void insertIndexBatch(String table, List<Index> indices) {
+        DbBatchEvent event = batchEvent(table, indices.size());
+        int[] updates = jdbcTemplate.batchUpdate(
+            "INSERT INTO " + table + " (lemma_id, page_id, index_rank, positions) " +
+                "VALUES (?, ?, ?, ?) AS new(l, p, r, pos) " +
+                "ON DUPLICATE KEY UPDATE index_rank = new.r, positions = new.pos",
             new BatchPreparedStatementSetter() {
                 @Override
                 public void setValues(PreparedStatement ps, int i) throws SQLException {
@@ -53,6 +329,7 @@ public class JdbcRepository {
                     ps.setLong(++index, indexPage.getLemma().getId());
                     ps.setLong(++index, indexPage.getPage().getId());
                     ps.setDouble(++index, indexPage.getRank());
+                    ps.setBytes(++index, indexPage.getPositions());
                 }
 
                 @Override
@@ -61,5 +338,43 @@ public class JdbcRepository {
                 }
             }
         );
+        commit(event, updates);
+    }
+
+    private static DbBatchEvent batchEvent(String table, int rows) {
+        DbBatchEvent event = new DbBatchEvent()
+            .setTable(table)
+            .setRows(rows);
+        event.begin();
+        return event;
+    }
+
+    private static int commit(DbBatchEvent event, int[] updates) {
+        int inserted = inserted(updates);
+        event.setInserted(inserted).commit();
+        return inserted;
+    }
+
+    private static int inserted(int[] updates) {
+        int inserted = 0;
+        for (int update : updates) {
+            if (update == 1) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    public interface PostingConsumer {
+        void accept(long lemmaId, long pageId, int rank, byte[] positions, int length);
+    }
+
+    public record QueryLemma(long lemmaId, int group, double idf) {
+    }
+
+    public record PageScore(long pageId, double score, Map<Long, byte[]> positions) {
+    }
+
+    public record PageScores(List<PageScore> pages, long total) {
     }
 }
@@ -27,12 +27,24 @@ public interface LemmaRepository extends JpaRepository<Lemma, Long> {
     )
     List<Lemma> getByLemma(Collection<String> lemmas);
 
+    @Query(
+        value = "SELECT l.lemma FROM Lemma l " +
+            "WHERE l.site.id = :siteId AND l.frequency >= :minFrequency"
+    )
+    List<String> getFrequent(Long siteId, long minFrequency);
+
     @Query(
         value = "SELECT COUNT(*) FROM lemma WHERE site_id = :siteId",
         nativeQuery = true
     )
     long countBy(Long siteId);
 
+    @Query(
+        value = "SELECT COALESCE(SUM(frequency), 0) FROM lemma WHERE site_id = :siteId",
+        nativeQuery = true
+    )
+    long sumFrequency(Long siteId);
+
     @Modifying
     @Query(
         value = "UPDATE lemma l " +
@@ -43,6 +55,33 @@ public interface LemmaRepository extends JpaRepository<Lemma, Long> {
     )
     void updateByPage(Long pageId);
 
+    @Modifying
+    @Query(
+        value = "UPDATE lemma l " +
+            "JOIN (SELECT lemma_id, COUNT(*) AS pages FROM `index` " +
+            "WHERE page_id IN (:pageIds) GROUP BY lemma_id) i ON i.lemma_id = l.id " +
+            "SET l.frequency = IF(l.frequency > i.pages, l.frequency - i.pages, 0)",
+        nativeQuery = true
+    )
+    void updateByPages(Collection<Long> pageIds);
+
+    @Query(
+        value = "SELECT l.id FROM lemma l " +
+            "WHERE l.site_id = :siteId AND l.frequency <= 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM `index` i WHERE i.lemma_id = l.id) " +
+            "LIMIT :limit",
+        nativeQuery = true
+    )
+    List<Long> getUnusedIds(Long siteId, int limit);
+
+    @Modifying
+    @Query(
+        value = "DELETE FROM lemma WHERE id IN (:ids) AND frequency <= 0 " +
+            "AND NOT EXISTS (SELECT 1 FROM `index` i WHERE i.lemma_id = lemma.id)",
+        nativeQuery = true
+    )
+    int deleteUnused(Collection<Long> ids);
+
     @Modifying
     @Query(
         value = "DELETE FROM lemma WHERE site_id IN (:sites)",
@@ -0,0 +1,100 @@
+package searchengine.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.model.SiteLease;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Transactional
+public interface SiteLeaseRepository extends JpaRepository<SiteLease, Long> {
+
+    @Query(
+        value = "SELECT COUNT(*) FROM site_lease WHERE pending = 1",
+        nativeQuery = true
+    )
+    long countPending();
+
+    @Query(
+        value = "SELECT site_id FROM site_lease WHERE pending = 1",
+        nativeQuery = true
+    )
+    List<Long> getPending();
+
+    @Query(
+        value = "SELECT site_id FROM site_lease " +
+            "WHERE pending = 1 AND (owner IS NULL OR expires_at < NOW(3)) " +
+            "ORDER BY site_id",
+        nativeQuery = true
+    )
+    List<Long> getClaimable();
+
+    @Query(
+        value = "SELECT site_id FROM site_lease " +
+            "WHERE pending = 1 AND owner = :owner",
+        nativeQuery = true
+    )
+    List<Long> getOwned(String owner);
+
+    @Modifying
+    @Query(
+        value = "INSERT INTO site_lease(site_id, owner, expires_at, pending) " +
+            "VALUES(:siteId, NULL, NOW(3), 1) " +
+            "ON DUPLICATE KEY UPDATE owner = NULL, expires_at = NOW(3), pending = 1",
+        nativeQuery = true
+    )
+    void request(Long siteId);
+
+    @Modifying
+    @Query(
+        value = "UPDATE site_lease " +
+            "SET owner = :owner, expires_at = NOW(3) + INTERVAL :ttl SECOND " +
+            "WHERE site_id = :siteId AND pending = 1 " +
+            "AND (owner IS NULL OR expires_at < NOW(3))",
+        nativeQuery = true
+    )
+    int claim(Long siteId, String owner, long ttl);
+
+    @Modifying
+    @Query(
+        value = "UPDATE site_lease SET expires_at = NOW(3) + INTERVAL :ttl SECOND " +
+            "WHERE pending = 1 AND owner = :owner AND site_id IN (:siteIds)",
+        nativeQuery = true
+    )
+    int renew(Collection<Long> siteIds, String owner, long ttl);
+
+    @Modifying
+    @Query(
+        value = "UPDATE site_lease SET pending = 0, owner = NULL " +
+            "WHERE site_id = :siteId AND owner = :owner",
+        nativeQuery = true
+    )
+    void release(Long siteId, String owner);
+
+    @Modifying
+    @Query(
+        value = "UPDATE site_lease SET owner = NULL, expires_at = NOW(3) " +
+            "WHERE pending = 1 AND owner = :owner",
+        nativeQuery = true
+    )
+    void handOver(String owner);
+
+    @Modifying
+    @Query(
+        value = "UPDATE site_lease SET pending = 0, owner = NULL WHERE pending = 1",
+        nativeQuery = true
+    )
+    int cancelAll();
+
+    @Modifying
+    @Query(
+        value = "DELETE FROM site_lease WHERE site_id IN (:ids)",
+        nativeQuery = true
+    )
+    void delete(List<Long> ids);
+}
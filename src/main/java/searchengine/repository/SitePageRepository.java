@@ -1,7 +1,5 @@
 package searchengine.repository;
 
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -9,6 +7,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.SitePage;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -29,38 +28,36 @@ public interface SitePageRepository extends JpaRepository<SitePage, Long> {
     SitePage getByPath(String path, Long siteId);
 
     @Query(
-        value = "SELECT sp.id FROM SitePage sp " +
-            "JOIN Index i ON sp.id = i.page.id " +
-            "WHERE i.lemma.id = :lemmaId"
+        value = "SELECT path FROM site_page WHERE site_id = :siteId AND code = 0",
+        nativeQuery = true
     )
-    List<Long> getIdsByLemma(Long lemmaId, Sort sort);
+    List<String> getUnfetchedPaths(Long siteId);
 
     @Query(
-        value = "SELECT sp.id FROM SitePage sp " +
-            "JOIN Index i ON sp.id = i.page.id " +
-            "WHERE i.lemma.id = :lemmaId AND sp.id IN (:pageIds)"
+        value = "SELECT id, path, length FROM site_page " +
+            "WHERE site_id = :siteId AND path IN (:paths)",
+        nativeQuery = true
     )
-    List<Long> getIdsByLemma(Long lemmaId, List<Long> pageIds);
+    List<Object[]> getByPaths(Long siteId, Collection<String> paths);
 
     @Query(
-        value = "SELECT COUNT(sp.id) FROM SitePage sp " +
-            "JOIN Index i ON sp.id = i.page.id " +
-            "WHERE i.lemma.id = :lemmaId AND sp.id IN (:pageIds)"
+        value = "SELECT COUNT(*) FROM site_page WHERE site_id = :siteId",
+        nativeQuery = true
     )
-    int countByLemma(Long lemmaId, List<Long> pageIds);
+    long countBySite(Long siteId);
 
     @Query(
-        value = "SELECT sp FROM SitePage sp " +
-            "JOIN Index i ON sp.id = i.page.id " +
-            "WHERE i.lemma.id = :lemmaId AND sp.id IN (:pageIds)"
+        value = "SELECT site_id, COUNT(*), SUM(length) FROM site_page " +
+            "WHERE length > 0 GROUP BY site_id",
+        nativeQuery = true
     )
-    List<SitePage> getByLemma(Long lemmaId, List<Long> pageIds, Pageable pageable);
+    List<Object[]> lengthStatistics();
 
     @Query(
-        value = "SELECT COUNT(*) FROM site_page WHERE site_id = :siteId",
+        value = "SELECT length FROM site_page WHERE id = :id",
         nativeQuery = true
     )
-    long countBySite(Long siteId);
+    int getLengthById(Long id);
 
     @Modifying
     @Query(
@@ -82,11 +79,29 @@ public interface SitePageRepository extends JpaRepository<SitePage, Long> {
 
     @Modifying
     @Query(
-        value = "UPDATE site_page SET code = :code, content = :content " +
+        value = "UPDATE site_page SET code = :code, content = :content, " +
+            "length = :length, language = :language " +
             "WHERE site_id = :siteId AND path = :path",
         nativeQuery = true
     )
-    int update(int code, String content, Long siteId, String path);
+    int update(int code, String content, int length, String language,
+               Long siteId, String path);
+
+    @Query(
+        value = "SELECT id FROM site_page " +
+            "WHERE site_id = :siteId AND code = 0 AND content IS NULL LIMIT :limit",
+        nativeQuery = true
+    )
+    List<Long> getUnfetchedIds(Long siteId, int limit);
+
+    @Modifying
+    @Query(
+        value = "DELETE FROM site_page " +
+            "WHERE id IN (:ids) AND code = 0 AND content IS NULL " +
+            "AND site_id IN (SELECT id FROM site WHERE status <> 'INDEXING')",
+        nativeQuery = true
+    )
+    int deleteUnfetched(Collection<Long> ids);
 
     @Modifying
     @Query(
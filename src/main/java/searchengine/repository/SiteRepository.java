@@ -24,9 +24,15 @@ public interface SiteRepository extends JpaRepository<Site, Long> {
     )
     List<Long> getNotActualSites(List<String> urls);
 
+    @Query(
+        value = "SELECT id, status_time FROM site WHERE status = 'INDEXED'",
+        nativeQuery = true
+    )
+    List<Object[]> getIndexedTimes();
+
     @Modifying
     @Query(
-        value = "UPDATE site SET status = :status WHERE id = :id",
+        value = "UPDATE site SET status = :status, status_time = NOW(6) WHERE id = :id",
         nativeQuery = true
     )
     void updateStatus(String status, Long id);
@@ -49,6 +55,25 @@ public interface SiteRepository extends JpaRepository<Site, Long> {
 
 
 
+    @Modifying
+    @Query(
+        value = "UPDATE site SET page_count = :pages, lemma_count = :lemmas " +
+            "WHERE id = :id",
+        nativeQuery = true
+    )
+    void updateCounters(long pages, long lemmas, Long id);
+
+    @Modifying
+    @Query(
+        value = "UPDATE site SET " +
+            "page_count = CASE WHEN page_count < 0 THEN page_count " +
+            "ELSE GREATEST(page_count + :pages, 0) END, " +
+            "lemma_count = CASE WHEN lemma_count < 0 THEN lemma_count " +
+            "ELSE GREATEST(lemma_count + :lemmas, 0) END WHERE id = :id",
+        nativeQuery = true
+    )
+    void addCounters(long pages, long lemmas, Long id);
+
     @Modifying
     @Query(
         value = "UPDATE site SET last_error = :error WHERE id = :id",
@@ -0,0 +1,146 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import searchengine.config.CompactionSettings;
+import searchengine.dto.statistics.CompactionStatistics;
+import searchengine.index.SiteCounters;
+import searchengine.model.Site;
+import searchengine.model.SiteStatus;
+import searchengine.repository.JdbcRepository;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.SitePageRepository;
+import searchengine.repository.SiteRepository;
+import searchengine.task.CrawlScheduler;
+import searchengine.task.SiteLeases;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CompactionService {
+
+    private final CompactionSettings settings;
+    private final SiteRepository siteRepository;
+    private final SitePageRepository sitePageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final JdbcRepository jdbcRepository;
+    private final SiteCounters siteCounters;
+    private final CrawlScheduler crawlScheduler;
+    private final SiteLeases siteLeases;
+    private final ReindexService reindexService;
+    private volatile CompactionStatistics last;
+
+    public CompactionStatistics getLast() {
+        return last;
+    }
+
+    @Scheduled(
+        initialDelayString = "${compaction-settings.interval:3600000}",
+        fixedDelayString = "${compaction-settings.interval:3600000}"
+    )
+    public void compact() {
+        if (!settings.isEnabled() || isIndexing()) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        CompactionStatistics statistics = new CompactionStatistics();
+        try {
+            Set<Long> changed = new HashSet<>();
+            for (Site site : siteRepository.findAll()) {
+                if (site.getStatus() == SiteStatus.INDEXING) {
+                    continue;
+                }
+                long pages = purge(
+                    limit -> sitePageRepository.getUnfetchedIds(site.getId(), limit),
+                    sitePageRepository::deleteUnfetched
+                );
+                long lemmas = purge(
+                    limit -> lemmaRepository.getUnusedIds(site.getId(), limit),
+                    lemmaRepository::deleteUnused
+                );
+                statistics.setPages(statistics.getPages() + pages)
+                    .setLemmas(statistics.getLemmas() + lemmas);
+                if (pages > 0 || lemmas > 0) {
+                    changed.add(site.getId());
+                }
+            }
+            changed.forEach(siteCounters::recount);
+            List<String> tables = new ArrayList<>();
+            if (statistics.getPages() > 0) {
+                tables.add("site_page");
+            }
+            if (statistics.getLemmas() > 0) {
+                tables.add("lemma");
+            }
+            jdbcRepository.analyzeTables(tables);
+        } catch (Interrupted ex) {
+            statistics.setInterrupted(true);
+        } catch (Exception ex) {
+            log.error("Index compaction failed", ex);
+            statistics.setInterrupted(true);
+        }
+        statistics.setFinished(LocalDateTime.now())
+            .setDuration(System.currentTimeMillis() - started);
+        last = statistics;
+        log.info("Compaction removed " + statistics.getLemmas() + " lemmas and " +
+            statistics.getPages() + " pages in " + statistics.getDuration() + " ms" +
+            (statistics.isInterrupted() ? " (interrupted)" : ""));
+    }
+
+    private long purge(Function<Integer, List<Long>> select,
+                       Function<List<Long>, Integer> delete) {
+        long removed = 0;
+        while (true) {
+            checkIndexing();
+            List<Long> ids = select.apply(settings.getBatchSize());
+            if (ids.isEmpty()) {
+                return removed;
+            }
+            int deleted = delete.apply(ids);
+            removed += deleted;
+            if (deleted == 0) {
+                return removed;
+            }
+            pause();
+        }
+    }
+
+    private void checkIndexing() {
+        if (isIndexing()) {
+            throw new Interrupted();
+        }
+    }
+
+    private void pause() {
+        if (settings.getPause() <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(settings.getPause());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new Interrupted();
+        }
+    }
+
+    private boolean isIndexing() {
+        return crawlScheduler.isRunning() || siteLeases.isRunning() ||
+            reindexService.isRunning();
+    }
+
+    private static class Interrupted extends RuntimeException {
+
+        Interrupted() {
+            super("Compaction interrupted by indexing", null, false, false);
+        }
+    }
+}
@@ -6,22 +6,35 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
 import searchengine.config.SiteConfig;
 import searchengine.config.SitesList;
+import searchengine.dto.IndexJobResponse;
+import searchengine.index.IndexSnapshots;
+import searchengine.index.IndexStatistics;
+import searchengine.index.LemmaDictionaries;
+import searchengine.index.PostingStore;
+import searchengine.index.SiteCounters;
 import searchengine.model.Site;
 import searchengine.model.SiteStatus;
 import searchengine.model.error.ApplicationError;
 import searchengine.repository.IndexRepository;
-import searchengine.repository.JdbcRepository;
 import searchengine.repository.LemmaRepository;
 import searchengine.repository.SitePageRepository;
 import searchengine.repository.SiteRepository;
-import searchengine.task.PageRecursiveTask;
+import searchengine.task.CrawlScheduler;
+import searchengine.task.IndexJob;
+import searchengine.task.SiteLeases;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ForkJoinPool;
 
 @Slf4j
 @Service
@@ -29,18 +42,27 @@ import java.util.concurrent.ForkJoinPool;
 public class IndexingService {
 
     private final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+    private final Duration JOB_TTL = Duration.ofHours(1);
 
     private final Executor executor = Executors.newFixedThreadPool(PROCESSORS);
+    private final Map<String, IndexJob> jobs = new ConcurrentHashMap<>();
     private final SitesList sites;
     private final SiteRepository siteRepository;
     private final SitePageRepository sitePageRepository;
     private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
-    private final JdbcRepository jdbcRepository;
-    private List<PageRecursiveTask> tasks;
+    private final CrawlScheduler crawlScheduler;
+    private final ReindexService reindexService;
+    private final IndexStatistics indexStatistics;
+    private final LemmaDictionaries lemmaDictionaries;
+    private final SiteCounters siteCounters;
+    private final SiteLeases siteLeases;
+    private final IndexSnapshots indexSnapshots;
+    private final PostingStore postingStore;
 
     public void startIndexing() {
-        if (!tasks.isEmpty()) {
+        if (crawlScheduler.isRunning() || reindexService.isRunning() ||
+            siteLeases.isRunning()) {
             throw new ApplicationError("Индексация уже запущена");
         }
 
@@ -58,18 +80,84 @@ public class IndexingService {
         );
     }
 
+    public void reindexFromStore() {
+        if (crawlScheduler.isRunning() || siteLeases.isRunning()) {
+            throw new ApplicationError("Индексация уже запущена");
+        }
+        reindexService.start();
+    }
+
     public void stopIndexing() {
-        if (tasks.isEmpty()) {
+        if (reindexService.isRunning()) {
+            reindexService.stop();
+            return;
+        }
+        if (!crawlScheduler.isRunning() && !siteLeases.isRunning()) {
             throw new ApplicationError("Индексация не запущена");
         }
-        for (PageRecursiveTask task : tasks) {
-            if (!task.isCancelled()) {
-                task.stopIndexing();
+        siteLeases.stopAll();
+        crawlScheduler.stop();
+    }
+
+    public IndexJobResponse indexPages(List<String> urls) {
+        if (reindexService.isRunning()) {
+            throw new ApplicationError("Индексация уже запущена");
+        }
+        Set<String> unique = new LinkedHashSet<>();
+        if (urls != null) {
+            urls.stream()
+                .filter(url -> url != null && !url.isBlank())
+                .forEach(url -> unique.add(url.trim()));
+        }
+        if (unique.isEmpty()) {
+            throw new ApplicationError("Список URL не может быть пустым");
+        }
+        IndexJob job = new IndexJob(unique.size());
+        Map<SiteConfig, Set<String>> urlsBySite = new LinkedHashMap<>();
+        for (String url : unique) {
+            SiteConfig siteConfig = getSites().stream()
+                .filter(config -> !config.getUrl().isBlank())
+                .filter(config -> url.startsWith(config.getUrl().trim()))
+                .findFirst()
+                .orElse(null);
+            if (siteConfig == null) {
+                job.fail(url, "Неизвестный URL");
+            } else {
+                urlsBySite.computeIfAbsent(siteConfig, k -> new LinkedHashSet<>()).add(url);
             }
         }
+        LocalDateTime expired = LocalDateTime.now().minus(JOB_TTL);
+        jobs.values().removeIf(
+            old -> old.isFinished() && old.getFinished().isBefore(expired)
+        );
+        jobs.put(job.getId(), job);
+        job.addSites(urlsBySite.size());
+        urlsBySite.forEach((siteConfig, siteUrls) -> executor.execute(() -> {
+            try {
+                Site site = updateSite(siteConfig, false);
+                crawlScheduler.indexPages(site, siteConfig, siteUrls, job);
+            } catch (Exception ex) {
+                log.error("Bulk indexing failed", ex);
+                siteUrls.forEach(url -> job.fail(url, ex.getMessage()));
+            } finally {
+                job.siteDone();
+            }
+        }));
+        return jobResponse(job);
+    }
+
+    public IndexJobResponse getIndexJob(String jobId) {
+        IndexJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ApplicationError("Задание не найдено");
+        }
+        return jobResponse(job);
     }
 
     public void indexPage(String url) {
+        if (reindexService.isRunning()) {
+            throw new ApplicationError("Индексация уже запущена");
+        }
         boolean outsideUrl = true;
         for (SiteConfig siteConfig : getSites()) {
             String parentUrl = siteConfig.getUrl().trim();
@@ -81,12 +169,7 @@ public class IndexingService {
                 executor.execute(
                     () -> {
                         Site site = updateSite(siteConfig, false);
-                        new PageRecursiveTask(
-                            site, url, siteRepository,
-                            sitePageRepository, lemmaRepository,
-                            jdbcRepository, indexRepository,
-                            url.equals(parentUrl), parentUrl
-                        ).indexPage();
+                        crawlScheduler.indexPage(site, siteConfig, url);
                     }
                 );
                 break;
@@ -97,20 +180,23 @@ public class IndexingService {
         }
     }
 
+    private IndexJobResponse jobResponse(IndexJob job) {
+        return new IndexJobResponse()
+            .setResult(true)
+            .setJobId(job.getId())
+            .setStatus(job.isFinished() ? "FINISHED" : "RUNNING")
+            .setTotal(job.getTotal())
+            .setIndexed(job.getIndexed().get())
+            .setFailed(job.getErrors().size())
+            .setStarted(job.getStarted())
+            .setFinished(job.getFinished())
+            .setErrors(new HashMap<>(job.getErrors()));
+    }
+
     private void parsePages(SiteConfig siteConfig) {
         Site site = updateSite(siteConfig, true);
-        PageRecursiveTask task = new PageRecursiveTask(
-            site, siteConfig.getUrl(),
-            siteRepository, sitePageRepository,
-            lemmaRepository, jdbcRepository
-        );
-        tasks.add(task);
-        ForkJoinPool forkJoinPool = new ForkJoinPool();
-        forkJoinPool.submit(task);
-        if (task.join()) {
-            siteRepository.updateStatus(SiteStatus.INDEXED.name(), site.getId());
-        }
-        tasks.clear();
+        siteLeases.request(site);
+        siteLeases.acquire();
     }
 
     private Site updateSite(SiteConfig siteConfig, boolean delete) {
@@ -126,10 +212,15 @@ public class IndexingService {
             indexRepository.deleteBySiteId(List.of(site.getId()));
             lemmaRepository.deleteBySiteId(List.of(site.getId()));
             sitePageRepository.deleteBySiteId(List.of(site.getId()));
+            indexStatistics.reset(site.getId());
+            siteCounters.reset(site.getId());
+            postingStore.remove(site.getId());
             site.setName(siteConfig.getName())
                 .setStatus(SiteStatus.INDEXING)
                 .setStatusTime(LocalDateTime.now())
-                .setLastError("");
+                .setLastError("")
+                .setPageCount(0)
+                .setLemmaCount(0);
             return siteRepository.saveAndFlush(site);
         }
         if (site.getId() == null) {
@@ -148,6 +239,12 @@ public class IndexingService {
         lemmaRepository.deleteBySiteId(ids);
         sitePageRepository.deleteBySiteId(ids);
         siteRepository.delete(ids);
+        ids.forEach(indexStatistics::remove);
+        ids.forEach(lemmaDictionaries::remove);
+        ids.forEach(siteCounters::remove);
+        siteLeases.remove(ids);
+        ids.forEach(indexSnapshots::remove);
+        ids.forEach(postingStore::remove);
     }
 
     private List<SiteConfig> getSites() {
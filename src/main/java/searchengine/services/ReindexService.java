@@ -0,0 +1,182 @@
+package searchengine.services;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import searchengine.index.IndexStatistics;
+import searchengine.index.PostingStore;
+import searchengine.index.SiteCounters;
+import searchengine.model.Index;
+import searchengine.model.Lemma;
+import searchengine.model.Site;
+import searchengine.model.SitePage;
+import searchengine.model.SiteStatus;
+import searchengine.model.event.SiteIndexedEvent;
+import searchengine.model.error.ApplicationError;
+import searchengine.repository.JdbcRepository;
+import searchengine.repository.SiteRepository;
+import searchengine.task.CrawlScheduler;
+import searchengine.utils.LemmaUtils;
+import searchengine.utils.PositionUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Slf4j
+@Service
+@AllArgsConstructor
+public class ReindexService {
+
+    private static final int BATCH_SIZE = 2000;
+
+    private final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+
+    private final Executor executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final SiteRepository siteRepository;
+    private final JdbcRepository jdbcRepository;
+    private final IndexStatistics indexStatistics;
+    private final SiteCounters siteCounters;
+    private final CrawlScheduler crawlScheduler;
+    private final PostingStore postingStore;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public void start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ApplicationError("Индексация уже запущена");
+        }
+        cancelled.set(false);
+        executor.execute(this::reindex);
+    }
+
+    public void stop() {
+        cancelled.set(true);
+    }
+
+    private void reindex() {
+        List<Site> sites = siteRepository.findAll();
+        try {
+            long started = System.currentTimeMillis();
+            jdbcRepository.createShadowTables();
+            long pages = rebuild(sites);
+            jdbcRepository.swapShadowTables();
+            sites.forEach(site -> postingStore.remove(site.getId()));
+            indexStatistics.reload();
+            sites.forEach(site -> {
+                siteCounters.recount(site.getId());
+                siteRepository.updateStatus(SiteStatus.INDEXED.name(), site.getId());
+                eventPublisher.publishEvent(new SiteIndexedEvent(site.getId()));
+            });
+            log.info("Reindexed " + pages + " pages from store in " +
+                (System.currentTimeMillis() - started) + " ms");
+        } catch (Exception ex) {
+            log.error("Reindex from store " + (cancelled.get() ? "stopped" : "failed") +
+                ", the live index is unchanged", ex);
+            jdbcRepository.dropShadowTables();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private long rebuild(List<Site> sites) throws InterruptedException {
+        Map<Long, Site> siteById = new HashMap<>();
+        Map<Long, Map<String, Lemma>> dictionary = new ConcurrentHashMap<>();
+        for (Site site : sites) {
+            siteById.put(site.getId(), site);
+            dictionary.put(site.getId(), new ConcurrentHashMap<>());
+        }
+        AtomicLong lemmaIds = new AtomicLong();
+        AtomicLong pages = new AtomicLong();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(
+            PROCESSORS, PROCESSORS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(PROCESSORS * 4),
+            new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+        try {
+            jdbcRepository.streamPages(page -> {
+                if (cancelled.get() || failure.get() != null) {
+                    throw new ApplicationError("Переиндексация прервана");
+                }
+                Site site = siteById.get(page.getSite().getId());
+                if (site == null) {
+                    return;
+                }
+                workers.execute(() -> {
+                    try {
+                        indexPage(page, site, dictionary.get(site.getId()), lemmaIds);
+                        pages.incrementAndGet();
+                    } catch (Exception ex) {
+                        failure.compareAndSet(null, ex);
+                    }
+                });
+            });
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        if (failure.get() != null) {
+            throw new ApplicationError(failure.get().getMessage());
+        }
+        List<Lemma> batch = new ArrayList<>();
+        for (Map<String, Lemma> lemmas : dictionary.values()) {
+            for (Lemma lemma : lemmas.values()) {
+                batch.add(lemma);
+                if (batch.size() >= BATCH_SIZE) {
+                    jdbcRepository.insertShadowLemmaBatch(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcRepository.insertShadowLemmaBatch(batch);
+        }
+        return pages.get();
+    }
+
+    private void indexPage(SitePage page, Site site,
+                           Map<String, Lemma> dictionary, AtomicLong lemmaIds) {
+        String text = LemmaUtils.cleanHtmlBody(Jsoup.parse(page.getContent()));
+        HashMap<String, List<Integer>> lemmasRaw = LemmaUtils.positions(text);
+        if (lemmasRaw.isEmpty()) {
+            return;
+        }
+        List<Index> indices = new ArrayList<>();
+        lemmasRaw.forEach((word, positions) -> {
+            Lemma lemma = dictionary.compute(
+                word, (k, v) -> v == null ?
+                    new Lemma(site, k, 1).setId(lemmaIds.incrementAndGet()) :
+                    v.setFrequency(v.getFrequency() + 1)
+            );
+            indices.add(
+                new Index(page, lemma, positions.size())
+                    .setPositions(PositionUtils.encode(positions))
+            );
+        });
+        crawlScheduler.withDb(() -> {
+            jdbcRepository.insertShadowPage(
+                page.getId(), lemmasRaw.values().stream().mapToInt(List::size).sum(),
+                LemmaUtils.language(text)
+            );
+            jdbcRepository.insertShadowIndexBatch(indices);
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package searchengine.services;
+
+import searchengine.model.error.ApplicationError;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+record SearchCursor(double score, long pageId, int count, boolean estimated, int seen,
+                    String fingerprint) {
+
+    private static final String VERSION = "3";
+    private static final String SEPARATOR = "|";
+    private static final int FINGERPRINT_BYTES = 12;
+    private static final double SCORE_TOLERANCE = 1e-9;
+
+    static SearchCursor decode(String token) {
+        try {
+            String[] parts = new String(
+                Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8
+            ).split("\\|", 7);
+            if (parts.length != 7 || !parts[0].equals(VERSION)) {
+                throw new IllegalArgumentException(token);
+            }
+            return new SearchCursor(
+                Double.longBitsToDouble(Long.parseUnsignedLong(parts[1], 16)),
+                Long.parseLong(parts[2]), Integer.parseInt(parts[3]),
+                parts[4].equals("1"), Integer.parseInt(parts[5]), parts[6]
+            );
+        } catch (IllegalArgumentException ex) {
+            throw new ApplicationError("Некорректный курсор");
+        }
+    }
+
+    static String fingerprint(String site,
+                              Collection<String> lemmas,
+                              List<Map<String, List<Integer>>> phrases) {
+        String value = String.join("\n",
+            site,
+            lemmas.stream().sorted().collect(Collectors.joining(",")),
+            phrases.stream()
+                .map(phrase -> new TreeMap<>(phrase).toString())
+                .collect(Collectors.joining(";"))
+        );
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Arrays.copyOf(digest, FINGERPRINT_BYTES));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    String encode() {
+        String value = String.join(SEPARATOR,
+            VERSION, Long.toHexString(Double.doubleToLongBits(score)),
+            String.valueOf(pageId), String.valueOf(count), estimated ? "1" : "0",
+            String.valueOf(seen), fingerprint
+        );
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static double round(double score) {
+        return Math.round(score / SCORE_TOLERANCE) * SCORE_TOLERANCE;
+    }
+
+    boolean precedes(double score, long pageId) {
+        return score < this.score || (score == this.score && pageId > this.pageId);
+    }
+
+    double maxScore() {
+        return score + Math.abs(score) * SCORE_TOLERANCE;
+    }
+}
@@ -0,0 +1,43 @@
+package searchengine.services;
+
+class SearchDeadline {
+
+    private final long expiresAt;
+
+    private SearchDeadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    static SearchDeadline after(long budgetMillis) {
+        return new SearchDeadline(System.currentTimeMillis() + budgetMillis);
+    }
+
+    SearchDeadline withReserve(long reserveMillis) {
+        return new SearchDeadline(expiresAt - reserveMillis);
+    }
+
+    long remaining() {
+        return Math.max(0, expiresAt - System.currentTimeMillis());
+    }
+
+    boolean isExpired() {
+        return System.currentTimeMillis() >= expiresAt;
+    }
+
+    int timeoutSeconds() {
+        return (int) Math.max(1, (remaining() + 999) / 1000);
+    }
+
+    void check() {
+        if (isExpired()) {
+            throw new Exceeded();
+        }
+    }
+
+    static class Exceeded extends RuntimeException {
+
+        Exceeded() {
+            super("Search deadline exceeded", null, false, false);
+        }
+    }
+}
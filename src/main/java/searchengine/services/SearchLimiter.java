@@ -0,0 +1,140 @@
+package searchengine.services;
+
+import org.springframework.stereotype.Component;
+import searchengine.config.SearchSettings;
+import searchengine.model.error.OverloadError;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+public class SearchLimiter {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double LONG_WINDOW = 100;
+    private static final String OVERLOAD_ERROR = "Сервис перегружен, повторите запрос позже";
+
+    private final SearchSettings settings;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Semaphore connections;
+    private double limit;
+    private double longRtt;
+    private int inFlight;
+    private int waiting;
+    private long rejected;
+
+    public SearchLimiter(SearchSettings settings) {
+        this.settings = settings;
+        this.limit = settings.getLimiterInitial();
+        this.connections = new Semaphore(settings.getDbConnections(), true);
+    }
+
+    public long acquire() {
+        lock.lock();
+        try {
+            if (inFlight >= (int) limit) {
+                await();
+            }
+            inFlight++;
+            return System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long startedNanos) {
+        long rtt = Math.max(1, System.nanoTime() - startedNanos);
+        lock.lock();
+        try {
+            update(rtt, inFlight);
+            inFlight--;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean acquireConnection(long timeoutMillis) {
+        try {
+            return connections.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void releaseConnection() {
+        connections.release();
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejected() {
+        lock.lock();
+        try {
+            return rejected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void await() {
+        if (waiting >= settings.getQueueSize()) {
+            rejected++;
+            throw new OverloadError(OVERLOAD_ERROR);
+        }
+        waiting++;
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(settings.getQueueTimeout());
+            while (inFlight >= (int) limit) {
+                if (nanos <= 0) {
+                    rejected++;
+                    throw new OverloadError(OVERLOAD_ERROR);
+                }
+                nanos = released.awaitNanos(nanos);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new OverloadError(OVERLOAD_ERROR);
+        } finally {
+            waiting--;
+        }
+    }
+
+    private void update(long rtt, int inFlight) {
+        longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / LONG_WINDOW;
+        if (longRtt > 2.0 * rtt) {
+            longRtt *= 0.95;
+        }
+        if (inFlight < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(
+            0.5, Math.min(1.0, settings.getLimiterTolerance() * longRtt / rtt)
+        );
+        double next = limit * gradient + Math.sqrt(limit);
+        limit = Math.max(
+            settings.getLimiterMin(),
+            Math.min(settings.getLimiterMax(), limit * (1 - SMOOTHING) + next * SMOOTHING)
+        );
+    }
+}
@@ -4,29 +4,57 @@ import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.config.SearchSettings;
 import searchengine.dto.ApiResponse;
 import searchengine.dto.SearchFilter;
 import searchengine.dto.SearchResult;
+import searchengine.index.Bm25Scorer;
+import searchengine.index.IndexStatistics;
+import searchengine.index.LemmaDictionaries;
+import searchengine.index.LemmaDictionary;
+import searchengine.index.PostingGeneration;
+import searchengine.index.PostingStore;
+import searchengine.index.SiteStatistics;
+import searchengine.index.StopLemmas;
+import searchengine.jfr.SearchStageEvent;
 import searchengine.model.Lemma;
 import searchengine.model.Site;
 import searchengine.model.SitePage;
 import searchengine.model.SiteStatus;
 import searchengine.model.error.ApplicationError;
-import searchengine.repository.IndexRepository;
+import searchengine.repository.JdbcRepository;
 import searchengine.repository.LemmaRepository;
 import searchengine.repository.SitePageRepository;
 import searchengine.repository.SiteRepository;
 import searchengine.utils.LemmaUtils;
+import searchengine.utils.PositionUtils;
 import searchengine.utils.SnippetUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -36,38 +64,339 @@ public class SearchService {
 
     private final int DEFAULT_OFFSET = 0;
     private final int DEFAULT_LIMIT = 20;
+    private final double PROXIMITY_WEIGHT = 0.5;
+    private final int FUZZY_MIN_LENGTH = 3;
+    private final int FUZZY_TWO_EDITS_LENGTH = 5;
+    private final double SNIPPET_BUDGET_SHARE = 0.25;
+    private final int CHECK_INTERVAL = 256;
+    private final int SQL_WINDOW_FACTOR = 4;
+    private final int SQL_MIN_WINDOW = 100;
+    private final int PROCESSORS = Runtime.getRuntime().availableProcessors();
+    private final Comparator<Hit> HIT_ORDER = Comparator
+        .comparingDouble(Hit::score).reversed()
+        .thenComparing(Hit::pageId);
+
+    private final Executor searchExecutor = Executors.newFixedThreadPool(PROCESSORS, runnable -> {
+        Thread thread = new Thread(runnable, "search-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<SearchKey, CompletableFuture<ApiResponse>> inFlight =
+        new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
 
     private final SiteRepository siteRepository;
     private final SitePageRepository sitePageRepository;
     private final LemmaRepository lemmaRepository;
-    private final IndexRepository indexRepository;
+    private final JdbcRepository jdbcRepository;
+    private final IndexStatistics indexStatistics;
+    private final StopLemmas stopLemmas;
+    private final LemmaDictionaries lemmaDictionaries;
+    private final PostingStore postingStore;
+    private final SearchSettings searchSettings;
+    private final PlatformTransactionManager transactionManager;
+    private final SearchLimiter searchLimiter;
 
     public ApiResponse search(SearchFilter filter) {
         if (filter.getQuery() == null || filter.getQuery().trim().isBlank()) {
             throw new ApplicationError("Поисковый запрос не может быть пустым");
         }
         String query = filter.getQuery().trim();
+        SearchStageEvent termsEvent = stage("terms", query, filter.getSite());
+        List<String> queryTerms = LemmaUtils.terms(query);
+        termsEvent.setSize(queryTerms.size()).commit();
+        long budget = filter.getTimeout() != null ?
+            Math.max(1, Math.min(filter.getTimeout(), searchSettings.getMaxDeadline())) :
+            searchSettings.getDeadline();
+        SearchKey key = new SearchKey(
+            new HashSet<>(queryTerms), PositionUtils.phrases(query), siteKey(filter.getSite()),
+            filter.getOffset() != null ? filter.getOffset() : DEFAULT_OFFSET,
+            filter.getLimit() != null ? filter.getLimit() : DEFAULT_LIMIT,
+            filter.getCursor() != null ? filter.getCursor().trim() : "",
+            budget
+        );
+        CompletableFuture<ApiResponse> flight = new CompletableFuture<>();
+        CompletableFuture<ApiResponse> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            coalesced.incrementAndGet();
+            try {
+                return leader.join();
+            } catch (CompletionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw ex;
+            }
+        }
+        try {
+            long started = searchLimiter.acquire();
+            try {
+                ApiResponse response = execute(filter, queryTerms, budget);
+                flight.complete(response);
+                return response;
+            } finally {
+                searchLimiter.release(started);
+            }
+        } catch (RuntimeException ex) {
+            flight.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    private String siteKey(String url) {
+        if (url == null || url.isBlank()) {
+            return "";
+        }
+        url = url.trim();
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private ApiResponse execute(SearchFilter filter, List<String> queryTerms, long budget) {
+        String query = filter.getQuery().trim();
+        SearchDeadline deadline = SearchDeadline.after(budget);
+        SearchCursor cursor = filter.getCursor() != null && !filter.getCursor().isBlank() ?
+            SearchCursor.decode(filter.getCursor()) : null;
         ApiResponse response = new ApiResponse(true);
         Site site = searchSite(filter.getSite());
-        HashMap<String, Integer> sourceLemmas = LemmaUtils.lemmatization(query, false);
-        List<Lemma> existLemmas =
-            site == null ?
-                lemmaRepository.getByLemma(sourceLemmas.keySet()) :
-                lemmaRepository.getByLemma(site.getId(), sourceLemmas.keySet());
-        if (existLemmas.isEmpty()) {
+        List<Long> siteIds = site == null ?
+            indexStatistics.siteIds() :
+            List.of(site.getId());
+        SearchStageEvent expandEvent = stage("expand", query, filter.getSite());
+        Map<String, List<String>> terms = expandTerms(queryTerms, siteIds);
+        expandEvent.setSize(terms.values().stream().mapToInt(List::size).sum()).commit();
+        Set<String> sourceLemmas = terms.values().stream()
+            .flatMap(List::stream)
+            .collect(Collectors.toSet());
+        String fingerprint = SearchCursor.fingerprint(
+            siteKey(filter.getSite()), sourceLemmas, PositionUtils.phrases(query)
+        );
+        if (cursor != null && !cursor.fingerprint().equals(fingerprint)) {
+            throw new ApplicationError("Курсор не соответствует запросу");
+        }
+        List<Lemma> existLemmas;
+        SearchStageEvent lemmasEvent = stage("lemmas", query, filter.getSite());
+        try {
+            existLemmas =
+                sourceLemmas.isEmpty() ? List.of() :
+                site == null ?
+                    query(deadline, () -> lemmaRepository.getByLemma(sourceLemmas)) :
+                    query(deadline, () -> lemmaRepository.getByLemma(site.getId(), sourceLemmas));
+        } catch (SearchDeadline.Exceeded | QueryTimeoutException |
+                 TransactionTimedOutException ex) {
             return response
                 .setCount(0)
+                .setTruncated(true)
                 .setData(new ArrayList<>());
         }
-        List<SitePage> matchPages = searchPages(existLemmas, filter, response);
-        if (matchPages.isEmpty()) {
-            return response;
+        lemmasEvent.setSize(existLemmas.size()).commit();
+        if (existLemmas.isEmpty()) {
+            return response
+                .setCount(0)
+                .setData(new ArrayList<>());
         }
-        List<SearchResult> result = collectResultByRelevance(
-            matchPages, existLemmas, sourceLemmas.keySet()
+        int offset = cursor != null ? 0 : filter.getOffset() != null ?
+            filter.getOffset() : DEFAULT_OFFSET;
+        int limit = filter.getLimit() != null ?
+            filter.getLimit() : DEFAULT_LIMIT;
+        Map<String, Double> idf = idf(existLemmas, siteIds);
+        List<Map<String, List<Integer>>> phrases = PositionUtils.phrases(query);
+        Map<Long, List<Lemma>> lemmasBySite = existLemmas.stream().collect(
+            Collectors.groupingBy(
+                lemma -> lemma.getSite().getId(), LinkedHashMap::new, Collectors.toList()
+            )
+        );
+        SearchDeadline siteDeadline = deadline.withReserve(
+            Math.round(budget * SNIPPET_BUDGET_SHARE)
         );
+        List<CompletableFuture<SiteHits>> futures = new ArrayList<>();
+        lemmasBySite.forEach((siteId, lemmas) -> futures.add(
+            CompletableFuture.supplyAsync(
+                () -> searchSite(
+                    query, siteId, terms, lemmas, idf, phrases,
+                    offset + limit, cursor, siteDeadline
+                ),
+                searchExecutor
+            )
+        ));
+        List<SiteHits> siteHits = new ArrayList<>();
+        for (CompletableFuture<SiteHits> future : futures) {
+            siteHits.add(await(future, siteDeadline));
+        }
+        List<Hit> hits = merge(siteHits, offset, limit);
+        SearchStageEvent snippetsEvent = stage("snippets", query, filter.getSite());
+        ResultPage page = collectResult(hits, sourceLemmas, deadline);
+        snippetsEvent.setSize(page.results().size()).commit();
+        boolean truncated = siteHits.stream().anyMatch(SiteHits::truncated) ||
+            (page.results().size() < hits.size() && deadline.isExpired());
+        int count = cursor != null ?
+            cursor.count() : siteHits.stream().mapToInt(SiteHits::count).sum();
+        boolean estimated = cursor != null ?
+            cursor.estimated() : siteHits.stream().anyMatch(SiteHits::estimated);
+        int seen = (cursor != null ? cursor.seen() : offset) + page.results().size();
+        if (page.last() != null && (seen < count || estimated)) {
+            response.setCursor(new SearchCursor(
+                page.last().score(), page.last().pageId(), count, estimated, seen, fingerprint
+            ).encode());
+        }
         return response
-            .setData(result);
+            .setCount(count)
+            .setEstimated(estimated)
+            .setTruncated(truncated)
+            .setData(page.results());
+    }
+
+    private SiteHits searchSite(String query,
+                                Long siteId,
+                                Map<String, List<String>> terms,
+                                List<Lemma> lemmas,
+                                Map<String, Double> idf,
+                                List<Map<String, List<Integer>>> phrases,
+                                int depth,
+                                SearchCursor cursor,
+                                SearchDeadline deadline) {
+        PostingGeneration postings = postingStore.acquire(siteId);
+        try {
+            SiteStatistics statistics = indexStatistics.get(siteId);
+            List<List<Lemma>> groups = candidateGroups(terms, lemmas);
+            List<Lemma> scoredLemmas = scoredLemmas(lemmas, groups, phrases);
+            if (postings == null) {
+                return scoreSite(
+                    query, siteId, groups, scoredLemmas, idf, phrases, statistics,
+                    depth, cursor, deadline
+                );
+            }
+            SearchStageEvent candidatesEvent = stage("candidates", query, String.valueOf(siteId));
+            List<Long> matchPages = searchPages(groups, postings, deadline);
+            candidatesEvent.setSize(matchPages.size()).commit();
+            if (matchPages.isEmpty()) {
+                return new SiteHits(0, List.of(), false, false);
+            }
+            SearchStageEvent rankEvent = stage("rank", query, String.valueOf(siteId));
+            Map<Long, Double> relevance = rankPages(
+                matchPages, scoredLemmas, idf, phrases, statistics, postings, deadline
+            );
+            rankEvent.setSize(relevance.size()).commit();
+            return new SiteHits(relevance.size(), top(relevance, depth, cursor), false, false);
+        } catch (SearchDeadline.Exceeded | QueryTimeoutException |
+                 TransactionTimedOutException ex) {
+            log.info("Search of site " + siteId + " cut off by deadline");
+            return new SiteHits(0, List.of(), true, false);
+        } finally {
+            if (postings != null) {
+                postings.release();
+            }
+        }
+    }
+
+    private Map<String, Double> idf(List<Lemma> existLemmas, List<Long> siteIds) {
+        Bm25Scorer scorer = scorer();
+        long pages = siteIds.stream()
+            .mapToLong(siteId -> indexStatistics.get(siteId).getPages())
+            .sum();
+        Map<String, Long> frequency = new HashMap<>();
+        existLemmas.forEach(
+            lemma -> frequency.merge(lemma.getLemma(), (long) lemma.getFrequency(), Long::sum)
+        );
+        Map<String, Double> idf = new HashMap<>();
+        frequency.forEach((lemma, df) -> idf.put(lemma, scorer.idf(df, pages)));
+        return idf;
+    }
+
+    private List<Hit> top(Map<Long, Double> relevance, int depth, SearchCursor cursor) {
+        PriorityQueue<Hit> top = new PriorityQueue<>(HIT_ORDER.reversed());
+        if (depth <= 0) {
+            return List.of();
+        }
+        relevance.forEach((pageId, relevanceScore) -> {
+            double score = SearchCursor.round(relevanceScore);
+            if (cursor != null && !cursor.precedes(score, pageId)) {
+                return;
+            }
+            Hit hit = new Hit(pageId, score);
+            if (top.size() < depth) {
+                top.add(hit);
+            } else if (HIT_ORDER.compare(hit, top.peek()) < 0) {
+                top.poll();
+                top.add(hit);
+            }
+        });
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(HIT_ORDER);
+        return hits;
+    }
+
+    private List<Hit> merge(List<SiteHits> siteHits, int offset, int limit) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>(
+            (a, b) -> HIT_ORDER.compare(
+                siteHits.get(a[0]).top().get(a[1]), siteHits.get(b[0]).top().get(b[1])
+            )
+        );
+        for (int i = 0; i < siteHits.size(); i++) {
+            if (!siteHits.get(i).top().isEmpty()) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        List<Hit> hits = new ArrayList<>();
+        int skipped = 0;
+        while (!heads.isEmpty() && hits.size() < limit) {
+            int[] head = heads.poll();
+            List<Hit> top = siteHits.get(head[0]).top();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                hits.add(top.get(head[1]));
+            }
+            if (head[1] + 1 < top.size()) {
+                heads.add(new int[]{head[0], head[1] + 1});
+            }
+        }
+        return hits;
+    }
+
+    private SiteHits await(CompletableFuture<SiteHits> future, SearchDeadline deadline) {
+        try {
+            return future.get(deadline.remaining(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            return new SiteHits(0, List.of(), true, false);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ApplicationError("Поиск прерван");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    private SearchStageEvent stage(String stage, String query, String site) {
+        SearchStageEvent event = new SearchStageEvent()
+            .setStage(stage)
+            .setQuery(query)
+            .setSite(site);
+        event.begin();
+        return event;
+    }
+
+    private <T> T query(SearchDeadline deadline, Supplier<T> query) {
+        deadline.check();
+        if (!searchLimiter.acquireConnection(deadline.remaining())) {
+            throw new SearchDeadline.Exceeded();
+        }
+        try {
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            template.setReadOnly(true);
+            template.setTimeout(deadline.timeoutSeconds());
+            return template.execute(status -> query.get());
+        } finally {
+            searchLimiter.releaseConnection();
+        }
     }
 
     private Site searchSite(String url) {
@@ -89,66 +418,286 @@ public class SearchService {
         return site;
     }
 
-    private List<SitePage> searchPages(List<Lemma> existLemmas,
-                                       SearchFilter filter,
-                                       ApiResponse response) {
-        List<SitePage> matchPages = new ArrayList<>();
-        List<Long> idsByLemma = sitePageRepository.getIdsByLemma(
-            existLemmas.get(0).getId(), Sort.by("id").ascending()
-        );
-        if (idsByLemma.isEmpty()) {
-            return matchPages;
-        }
-        for (int i = 0; i < existLemmas.size(); i++) {
-            Lemma lemma = existLemmas.get(i);
-            if (i != existLemmas.size() - 1) {
-                if (i == 0) {
-                    continue;
+    private Map<String, List<String>> expandTerms(List<String> terms, List<Long> siteIds) {
+        Map<String, List<String>> expanded = new LinkedHashMap<>();
+        for (String term : terms) {
+            boolean known = siteIds.stream()
+                .anyMatch(siteId -> lemmaDictionaries.get(siteId).weight(term) > 0);
+            if (known || term.length() < FUZZY_MIN_LENGTH) {
+                expanded.put(term, List.of(term));
+                continue;
+            }
+            int maxEdits = term.length() < FUZZY_TWO_EDITS_LENGTH ?
+                1 : searchSettings.getFuzzyMaxEdits();
+            Map<String, LemmaDictionary.Match> matches = new HashMap<>();
+            for (Long siteId : siteIds) {
+                lemmaDictionaries.get(siteId)
+                    .fuzzy(term, maxEdits, searchSettings.getFuzzyExpansions())
+                    .forEach(match -> matches.merge(
+                        match.lemma(), match,
+                        (a, b) -> new LemmaDictionary.Match(
+                            a.lemma(), a.distance(), a.weight() + b.weight()
+                        )
+                    ));
+            }
+            List<String> alternatives = matches.values().stream()
+                .sorted(
+                    Comparator.comparingInt(LemmaDictionary.Match::distance)
+                        .thenComparing(
+                            Comparator.comparingInt(LemmaDictionary.Match::weight).reversed()
+                        )
+                )
+                .limit(searchSettings.getFuzzyExpansions())
+                .map(LemmaDictionary.Match::lemma)
+                .toList();
+            if (!alternatives.isEmpty()) {
+                log.info("Expanded query term " + term + " to " + alternatives);
+            }
+            expanded.put(term, alternatives.isEmpty() ? List.of(term) : alternatives);
+        }
+        return expanded;
+    }
+
+    private List<List<Lemma>> candidateGroups(Map<String, List<String>> terms,
+                                              List<Lemma> existLemmas) {
+        List<List<Lemma>> groups = new ArrayList<>();
+        for (List<String> alternatives : terms.values()) {
+            List<Lemma> group = existLemmas.stream()
+                .filter(lemma -> alternatives.contains(lemma.getLemma()))
+                .toList();
+            if (!group.isEmpty()) {
+                groups.add(group);
+            }
+        }
+        groups.sort(Comparator.comparingLong(this::frequency));
+        List<List<Lemma>> candidateGroups = groups.stream()
+            .filter(group -> !group.stream().allMatch(stopLemmas::isStopLemma))
+            .toList();
+        return candidateGroups.isEmpty() ?
+            groups.subList(0, 1) : candidateGroups;
+    }
+
+    private List<Lemma> scoredLemmas(List<Lemma> lemmas,
+                                     List<List<Lemma>> groups,
+                                     List<Map<String, List<Integer>>> phrases) {
+        Set<Long> required = groups.stream()
+            .flatMap(List::stream)
+            .map(Lemma::getId)
+            .collect(Collectors.toSet());
+        return lemmas.stream()
+            .filter(lemma -> !stopLemmas.isStopLemma(lemma) ||
+                required.contains(lemma.getId()) ||
+                phrases.stream().anyMatch(phrase -> phrase.containsKey(lemma.getLemma())))
+            .toList();
+    }
+
+    private long frequency(List<Lemma> group) {
+        return group.stream().mapToLong(Lemma::getFrequency).sum();
+    }
+
+    private List<Long> searchPages(List<List<Lemma>> groups,
+                                   PostingGeneration postings,
+                                   SearchDeadline deadline) {
+        long[] ids = postings.pageIds(lemmaIds(groups.get(0)));
+        for (int i = 1; i < groups.size() && ids.length > 0; i++) {
+            deadline.check();
+            ids = PostingGeneration.intersect(
+                ids, postings.pageIds(lemmaIds(groups.get(i)))
+            );
+        }
+        return Arrays.stream(ids).boxed().toList();
+    }
+
+    private SiteHits scoreSite(String query,
+                               Long siteId,
+                               List<List<Lemma>> groups,
+                               List<Lemma> lemmas,
+                               Map<String, Double> idf,
+                               List<Map<String, List<Integer>>> phrases,
+                               SiteStatistics statistics,
+                               int depth,
+                               SearchCursor cursor,
+                               SearchDeadline deadline) {
+        Map<Long, String> lemmaNames = new HashMap<>();
+        lemmas.forEach(lemma -> lemmaNames.put(lemma.getId(), lemma.getLemma()));
+        boolean positions = !phrases.isEmpty() || lemmaNames.size() > 1;
+        double maxBoost = 1 + PROXIMITY_WEIGHT * lemmaNames.size();
+        SiteHits best = null;
+        int window = Math.max(depth * SQL_WINDOW_FACTOR, SQL_MIN_WINDOW);
+        while (true) {
+            int limit = window;
+            JdbcRepository.PageScores scores;
+            SearchStageEvent candidatesEvent = stage("candidates", query, String.valueOf(siteId));
+            try {
+                scores = query(deadline, () -> scorePages(
+                    groups, lemmas, idf, statistics, cursor, limit, positions
+                ));
+            } catch (SearchDeadline.Exceeded | QueryTimeoutException |
+                     TransactionTimedOutException ex) {
+                if (best == null) {
+                    throw ex;
+                }
+                log.info("Search of site " + siteId + " cut off by deadline");
+                return new SiteHits(best.count(), best.top(), true, best.estimated());
+            }
+            candidatesEvent.setSize(scores.pages().size()).commit();
+            SearchStageEvent rankEvent = stage("rank", query, String.valueOf(siteId));
+            Map<Long, Double> relevance = new HashMap<>();
+            for (JdbcRepository.PageScore page : scores.pages()) {
+                Map<String, int[]> pagePositions = new HashMap<>();
+                page.positions().forEach((lemmaId, bytes) -> pagePositions.put(
+                    lemmaNames.get(lemmaId), PositionUtils.decode(bytes)
+                ));
+                Double score = relevance(page.score(), pagePositions, phrases);
+                if (score != null) {
+                    relevance.put(page.pageId(), score);
                 }
-                idsByLemma = sitePageRepository.getIdsByLemma(lemma.getId(), idsByLemma);
+            }
+            rankEvent.setSize(relevance.size()).commit();
+            List<Hit> top = top(relevance, depth, cursor);
+            boolean exhausted = scores.pages().size() < limit;
+            if (phrases.isEmpty()) {
+                best = new SiteHits((int) scores.total(), top, false, false);
+            } else if (exhausted) {
+                best = new SiteHits(relevance.size(), top, false, false);
             } else {
-                response.setCount(
-                    sitePageRepository.countByLemma(lemma.getId(), idsByLemma)
-                );
-                matchPages = sitePageRepository.getByLemma(
-                    lemma.getId(), idsByLemma, getLimit(filter)
+                best = new SiteHits(
+                    (int) Math.round((double) scores.total() * relevance.size() / limit),
+                    top, false, true
                 );
             }
-            if (idsByLemma.isEmpty()) {
-                break;
+            if (exhausted || depth <= 0) {
+                return best;
+            }
+            double unseen = scores.pages().get(limit - 1).score() * maxBoost;
+            if (top.size() >= depth && top.get(depth - 1).score() > unseen) {
+                return best;
             }
+            window *= SQL_WINDOW_FACTOR;
         }
-        return matchPages;
     }
 
-    private PageRequest getLimit(SearchFilter filter) {
-        int offset = filter.getOffset() != null ?
-            filter.getOffset() : DEFAULT_OFFSET;
-        int limit = filter.getLimit() != null ?
-            filter.getLimit() : DEFAULT_LIMIT;
-        return PageRequest.of(
-            offset != 0 ? limit / offset : 0, limit
+    private JdbcRepository.PageScores scorePages(List<List<Lemma>> groups,
+                                                 List<Lemma> lemmas,
+                                                 Map<String, Double> idf,
+                                                 SiteStatistics statistics,
+                                                 SearchCursor cursor,
+                                                 int limit,
+                                                 boolean positions) {
+        Map<Long, Integer> groupByLemma = new HashMap<>();
+        int required = 0;
+        for (List<Lemma> group : groups) {
+            if (group.stream().anyMatch(lemma -> groupByLemma.containsKey(lemma.getId()))) {
+                continue;
+            }
+            for (Lemma lemma : group) {
+                groupByLemma.put(lemma.getId(), required);
+            }
+            required++;
+        }
+        List<JdbcRepository.QueryLemma> queryLemmas = lemmas.stream()
+            .map(lemma -> new JdbcRepository.QueryLemma(
+                lemma.getId(), groupByLemma.getOrDefault(lemma.getId(), -1),
+                idf.get(lemma.getLemma())
+            ))
+            .toList();
+        Bm25Scorer scorer = scorer();
+        return jdbcRepository.scorePages(
+            queryLemmas, required, scorer.getK1(), scorer.getB(),
+            statistics.getAverageLength(),
+            cursor != null ? cursor.maxScore() : null,
+            limit, positions
         );
     }
 
-    private List<SearchResult> collectResultByRelevance(List<SitePage> pages,
-                                                        List<Lemma> existLemmas,
-                                                        Set<String> sourceLemmas) {
+    private List<Long> lemmaIds(List<Lemma> group) {
+        return group.stream().map(Lemma::getId).toList();
+    }
+
+    private Bm25Scorer scorer() {
+        return new Bm25Scorer(searchSettings.getBm25K1(), searchSettings.getBm25B());
+    }
+
+    private Map<Long, Double> rankPages(List<Long> pageIds,
+                                        List<Lemma> existLemmas,
+                                        Map<String, Double> idf,
+                                        List<Map<String, List<Integer>>> phrases,
+                                        SiteStatistics statistics,
+                                        PostingGeneration postings,
+                                        SearchDeadline deadline) {
+        Bm25Scorer scorer = scorer();
+        Map<Long, Lemma> lemmaById = new HashMap<>();
+        for (Lemma lemma : existLemmas) {
+            lemmaById.put(lemma.getId(), lemma);
+        }
+        Map<Long, Double> rankByPage = new HashMap<>();
+        Map<Long, Map<String, int[]>> positionsByPage = new HashMap<>();
+        List<Object[]> rows = postings.rows(pageIds, lemmaById.keySet());
+        deadline.check();
+        for (Object[] row : rows) {
+            Long pageId = (Long) row[0];
+            Lemma lemma = lemmaById.get((Long) row[1]);
+            double score = scorer.score(
+                (Double) row[2], idf.get(lemma.getLemma()),
+                (Integer) row[4], statistics.getAverageLength()
+            );
+            rankByPage.merge(pageId, score, Double::sum);
+            positionsByPage
+                .computeIfAbsent(pageId, k -> new HashMap<>())
+                .put(lemma.getLemma(), PositionUtils.decode((byte[]) row[3]));
+        }
+        Map<Long, Double> relevance = new HashMap<>();
+        int[] ranked = {0};
+        rankByPage.forEach((pageId, rank) -> {
+            if (++ranked[0] % CHECK_INTERVAL == 0) {
+                deadline.check();
+            }
+            Double score = relevance(rank, positionsByPage.get(pageId), phrases);
+            if (score != null) {
+                relevance.put(pageId, score);
+            }
+        });
+        return relevance;
+    }
+
+    private Double relevance(double rank,
+                             Map<String, int[]> positions,
+                             List<Map<String, List<Integer>>> phrases) {
+        for (Map<String, List<Integer>> phrase : phrases) {
+            if (!PositionUtils.containsPhrase(positions, phrase)) {
+                return null;
+            }
+        }
+        int span = positions.size() > 1 ?
+            PositionUtils.minimalSpan(positions.values()) : 0;
+        double boost = span > 0 ?
+            1 + PROXIMITY_WEIGHT * positions.size() / span : 1;
+        return rank * boost;
+    }
+
+    private ResultPage collectResult(List<Hit> hits, Set<String> sourceLemmas,
+                                     SearchDeadline deadline) {
         List<SearchResult> result = new ArrayList<>();
-        List<Long> pageIds = pages.stream()
-            .map(SitePage::getId).toList();
-        int totalRelevance = indexRepository.totalRelevance(pageIds);
-        Map<Long, Double> relevanceByLemmas = indexRepository
-            .relevanceByLemmas(
-                pageIds, existLemmas.stream().map(Lemma::getId).toList()
-            )
-            .stream()
-            .collect(Collectors.toMap(
-                o -> (Long) o[0], o -> (Double) o[1]
-            ));
-        for (SitePage page : pages) {
-            Double pageRelevance = relevanceByLemmas.get(page.getId());
-            if (pageRelevance == null || pageRelevance == 0) {
+        if (hits.isEmpty() || deadline.isExpired()) {
+            return new ResultPage(result, null);
+        }
+        List<Long> pageIds = hits.stream().map(Hit::pageId).toList();
+        Map<Long, SitePage> pages;
+        try {
+            pages = query(deadline, () -> sitePageRepository.findAllById(pageIds)).stream()
+                .collect(Collectors.toMap(SitePage::getId, page -> page));
+        } catch (SearchDeadline.Exceeded | QueryTimeoutException |
+                 TransactionTimedOutException ex) {
+            return new ResultPage(result, null);
+        }
+        Hit last = null;
+        for (Hit hit : hits) {
+            if (deadline.isExpired()) {
+                break;
+            }
+            last = hit;
+            SitePage page = pages.get(hit.pageId());
+            if (page == null) {
                 continue;
             }
             Site site = page.getSite();
@@ -156,15 +705,32 @@ public class SearchService {
             String title = document
                 .select("title")
                 .remove().text();
-            String snippet = SnippetUtils.generateSnippet(document, sourceLemmas);
+            String snippet = SnippetUtils.generateSnippet(
+                document, sourceLemmas, page.getLanguage()
+            );
             result.add(
                 new SearchResult(
                     site.getUrl(), site.getName(),
                     page.getPath(), title,
-                    snippet, pageRelevance / totalRelevance
+                    snippet, hit.score()
                 )
             );
         }
-        return result;
+        return new ResultPage(result, last);
+    }
+
+    private record Hit(Long pageId, double score) {
+    }
+
+    private record SearchKey(Set<String> terms,
+                             List<Map<String, List<Integer>>> phrases,
+                             String site, int offset, int limit, String cursor,
+                             long budget) {
+    }
+
+    private record SiteHits(int count, List<Hit> top, boolean truncated, boolean estimated) {
+    }
+
+    private record ResultPage(List<SearchResult> results, Hit last) {
     }
 }
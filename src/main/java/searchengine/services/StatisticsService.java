@@ -3,14 +3,19 @@ package searchengine.services;
 import lombok.AllArgsConstructor;
 import org.springframework.stereotype.Service;
 import searchengine.dto.statistics.DetailedStatisticsItem;
+import searchengine.dto.statistics.MemoryStatistics;
+import searchengine.dto.statistics.SearchStatistics;
 import searchengine.dto.statistics.StatisticsData;
 import searchengine.dto.statistics.StatisticsResponse;
 import searchengine.dto.statistics.TotalStatistics;
+import searchengine.index.LemmaDictionaries;
+import searchengine.index.OffHeapBuffers;
+import searchengine.index.PostingStore;
+import searchengine.index.SiteCounters;
 import searchengine.model.Site;
 import searchengine.model.SiteStatus;
-import searchengine.repository.LemmaRepository;
-import searchengine.repository.SitePageRepository;
 import searchengine.repository.SiteRepository;
+import searchengine.task.CrawlScheduler;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -20,18 +25,32 @@ import java.util.List;
 public class StatisticsService {
 
     private final SiteRepository siteRepository;
-    private final SitePageRepository sitePageRepository;
-    private final LemmaRepository lemmaRepository;
+    private final SiteCounters siteCounters;
+    private final CrawlScheduler crawlScheduler;
+    private final LemmaDictionaries lemmaDictionaries;
+    private final PostingStore postingStore;
+    private final SearchService searchService;
+    private final SearchLimiter searchLimiter;
+    private final CompactionService compactionService;
 
     public StatisticsResponse getStatistics() {
         List<Site> sites = siteRepository.findAll();
         TotalStatistics total = new TotalStatistics();
-        total.setSites(sites.size());
+        total.setSites(sites.size())
+            .setMemory(memory())
+            .setSearch(
+                new SearchStatistics()
+                    .setConcurrencyLimit(searchLimiter.getLimit())
+                    .setInFlight(searchLimiter.getInFlight())
+                    .setRejected(searchLimiter.getRejected())
+                    .setCoalesced(searchService.getCoalesced())
+            )
+            .setCompaction(compactionService.getLast());
 
         List<DetailedStatisticsItem> detailed = new ArrayList<>();
         for (Site site : sites) {
-            long pageCountBy = sitePageRepository.countBySite(site.getId());
-            long lemmaCountBy = lemmaRepository.countBy(site.getId());
+            long pageCountBy = siteCounters.getPages(site);
+            long lemmaCountBy = siteCounters.getLemmas(site);
             total.setPages(total.getPages() + pageCountBy)
                 .setLemmas(total.getLemmas() + lemmaCountBy);
             if (!total.isIndexing() && site.getStatus() == SiteStatus.INDEXING) {
@@ -48,6 +67,8 @@ public class StatisticsService {
                     )
                     .setPages(pageCountBy)
                     .setLemmas(lemmaCountBy)
+                    .setOffHeap(postingStore.offHeapBytes(site.getId()))
+                    .setCrawl(crawlScheduler.getProgress(site.getId()))
             );
         }
 
@@ -59,4 +80,15 @@ public class StatisticsService {
         response.setResult(true);
         return response;
     }
+
+    private MemoryStatistics memory() {
+        Runtime runtime = Runtime.getRuntime();
+        return new MemoryStatistics()
+            .setHeapUsed(runtime.totalMemory() - runtime.freeMemory())
+            .setHeapMax(runtime.maxMemory())
+            .setDictionaryHeap(lemmaDictionaries.memoryBytes())
+            .setDictionaryMapped(lemmaDictionaries.mappedBytes())
+            .setPostingsOffHeap(postingStore.offHeapBytes())
+            .setDirectAllocated(OffHeapBuffers.allocated());
+    }
 }
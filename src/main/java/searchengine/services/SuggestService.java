@@ -0,0 +1,97 @@
+package searchengine.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import searchengine.dto.SuggestResponse;
+import searchengine.index.LemmaDictionaries;
+import searchengine.index.LemmaDictionary;
+import searchengine.model.Site;
+import searchengine.model.error.ApplicationError;
+import searchengine.model.event.SiteIndexedEvent;
+import searchengine.repository.SiteRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+public class SuggestService {
+
+    private final int DEFAULT_LIMIT = 10;
+    private final int MAX_LIMIT = 50;
+
+    private final SiteRepository siteRepository;
+    private final LemmaDictionaries lemmaDictionaries;
+    private volatile Map<String, Long> siteIds;
+
+    public SuggestResponse suggest(String query, String siteUrl, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new ApplicationError("Поисковый запрос не может быть пустым");
+        }
+        String[] words = query.trim().toLowerCase().split("\\s+");
+        String prefix = words[words.length - 1];
+        int size = limit != null ?
+            Math.max(1, Math.min(limit, MAX_LIMIT)) : DEFAULT_LIMIT;
+
+        Collection<Long> sites = getSiteIds(siteUrl);
+        List<LemmaDictionary.Suggestion> suggestions;
+        if (sites.size() == 1) {
+            suggestions = lemmaDictionaries
+                .get(sites.iterator().next())
+                .prefix(prefix, size);
+        } else {
+            Map<String, Integer> merged = new HashMap<>();
+            for (Long siteId : sites) {
+                lemmaDictionaries.get(siteId).prefix(prefix, size).forEach(
+                    suggestion -> merged.merge(
+                        suggestion.lemma(), suggestion.weight(), Integer::sum
+                    )
+                );
+            }
+            suggestions = new ArrayList<>();
+            merged.forEach(
+                (lemma, weight) -> suggestions.add(new LemmaDictionary.Suggestion(lemma, weight))
+            );
+            suggestions.sort(
+                Comparator.comparingInt(LemmaDictionary.Suggestion::weight).reversed()
+            );
+            if (suggestions.size() > size) {
+                suggestions = suggestions.subList(0, size);
+            }
+        }
+        return new SuggestResponse()
+            .setResult(true)
+            .setSuggestions(suggestions);
+    }
+
+    @EventListener
+    public void onSiteIndexed(SiteIndexedEvent event) {
+        siteIds = null;
+    }
+
+    private Collection<Long> getSiteIds(String siteUrl) {
+        Map<String, Long> ids = siteIds;
+        if (ids == null) {
+            ids = new HashMap<>();
+            for (Site site : siteRepository.findAll()) {
+                ids.put(site.getUrl(), site.getId());
+            }
+            siteIds = ids;
+        }
+        if (siteUrl == null || siteUrl.isBlank()) {
+            return ids.values();
+        }
+        String url = siteUrl.trim();
+        url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        Long siteId = ids.get(url);
+        if (siteId == null) {
+            throw new ApplicationError("Сайт не найден");
+        }
+        return List.of(siteId);
+    }
+}
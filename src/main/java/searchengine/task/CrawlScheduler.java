@@ -0,0 +1,443 @@
+package searchengine.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlSettings;
+import searchengine.config.SiteConfig;
+import searchengine.dto.statistics.CrawlProgress;
+import searchengine.index.IndexStatistics;
+import searchengine.index.SiteCounters;
+import searchengine.model.Site;
+import searchengine.model.SiteStatus;
+import searchengine.model.event.SiteCrawlFinishedEvent;
+import searchengine.model.event.SiteIndexedEvent;
+import searchengine.repository.IndexRepository;
+import searchengine.repository.JdbcRepository;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.SitePageRepository;
+import searchengine.repository.SiteRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Slf4j
+@Component
+public class CrawlScheduler {
+
+    private static final long IDLE_MILLIS = TimeUnit.SECONDS.toMillis(1);
+    private static final String STOPPED_ERROR = "Индексация остановлена пользователем";
+    private static final String UNAVAILABLE_ERROR = "Сайт недоступен";
+
+    private final CrawlSettings settings;
+    private final SiteRepository siteRepository;
+    private final SitePageRepository sitePageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final JdbcRepository jdbcRepository;
+    private final IndexRepository indexRepository;
+    private final IndexStatistics indexStatistics;
+    private final SiteCounters siteCounters;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<SiteCrawl> active = new ArrayDeque<>();
+    private final Map<Long, SiteCrawl> crawls = new ConcurrentHashMap<>();
+    private final List<Long> finished = new ArrayList<>();
+    private final Semaphore dbPermits;
+    private ExecutorService workers;
+    private ExecutorService fetchers;
+
+    public CrawlScheduler(CrawlSettings settings,
+                          SiteRepository siteRepository,
+                          SitePageRepository sitePageRepository,
+                          LemmaRepository lemmaRepository,
+                          JdbcRepository jdbcRepository,
+                          IndexRepository indexRepository,
+                          IndexStatistics indexStatistics,
+                          SiteCounters siteCounters,
+                          ApplicationEventPublisher eventPublisher) {
+        this.settings = settings;
+        this.siteRepository = siteRepository;
+        this.sitePageRepository = sitePageRepository;
+        this.lemmaRepository = lemmaRepository;
+        this.jdbcRepository = jdbcRepository;
+        this.indexRepository = indexRepository;
+        this.indexStatistics = indexStatistics;
+        this.siteCounters = siteCounters;
+        this.eventPublisher = eventPublisher;
+        this.dbPermits = new Semaphore(Math.max(1, settings.getDbConnections()), true);
+    }
+
+    public boolean isRunning() {
+        return !crawls.isEmpty();
+    }
+
+    public void submit(Site site, SiteConfig siteConfig) {
+        SiteCrawl crawl = newCrawl(site, siteConfig);
+        List<String> unfetched = new ArrayList<>();
+        withDb(() -> {
+            siteCounters.addPages(
+                site.getId(), sitePageRepository.insert(site.getId(), "/")
+            );
+            unfetched.addAll(sitePageRepository.getUnfetchedPaths(site.getId()));
+        });
+        lock.lock();
+        try {
+            startWorkers();
+            crawls.put(site.getId(), crawl);
+            for (String path : unfetched) {
+                crawl.getFrontier().add(
+                    path.equals("/") ? crawl.getRootUrl() : crawl.getRootUrl() + path
+                );
+            }
+            active.addLast(crawl);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void stop() {
+        List<Long> siteIds = new ArrayList<>();
+        lock.lock();
+        try {
+            for (SiteCrawl crawl : List.copyOf(crawls.values())) {
+                siteIds.add(crawl.getSite().getId());
+                halt(crawl);
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        withDb(() -> siteIds.forEach(siteId -> siteRepository.updateFailedStatus(
+            SiteStatus.FAILED.name(), STOPPED_ERROR, siteId
+        )));
+        publishFinished();
+        log.info("Stopped indexing");
+    }
+
+    public void abandon(Long siteId) {
+        lock.lock();
+        try {
+            SiteCrawl crawl = crawls.get(siteId);
+            if (crawl != null) {
+                halt(crawl);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        publishFinished();
+    }
+
+    public void indexPage(Site site, SiteConfig siteConfig, String url) {
+        newTask(newCrawl(site, siteConfig), url).indexPage();
+        siteRepository.updateStatusTime(LocalDateTime.now(), site.getId());
+        eventPublisher.publishEvent(new SiteIndexedEvent(site.getId()));
+    }
+
+    public void indexPages(Site site, SiteConfig siteConfig,
+                           Collection<String> urls, IndexJob job) {
+        new PageBatch(
+            newCrawl(site, siteConfig), urls, job, this, fetchers(),
+            sitePageRepository, lemmaRepository, jdbcRepository,
+            indexRepository, indexStatistics, siteCounters
+        ).run();
+        siteRepository.updateStatusTime(LocalDateTime.now(), site.getId());
+        eventPublisher.publishEvent(new SiteIndexedEvent(site.getId()));
+    }
+
+    public CrawlProgress getProgress(Long siteId) {
+        SiteCrawl crawl = crawls.get(siteId);
+        if (crawl == null) {
+            return null;
+        }
+        lock.lock();
+        try {
+            HostController host = crawl.getHost();
+            long now = System.currentTimeMillis();
+            return new CrawlProgress()
+                .setQueued(crawl.getFrontier().size())
+                .setInFlight(crawl.getInFlight())
+                .setProcessed(crawl.getProcessed())
+                .setRetrying(crawl.getRetries().size())
+                .setConcurrency(host.limit(now))
+                .setLatency(host.getLatency())
+                .setErrorRate(host.getErrorRate())
+                .setCircuit(host.state(now));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void offer(SiteCrawl crawl, Collection<String> urls) {
+        if (urls.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (!crawl.isStopped()) {
+                crawl.getFrontier().addAll(urls);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void withDb(Runnable action) {
+        try {
+            dbPermits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for database permit", ex);
+        }
+        try {
+            action.run();
+        } finally {
+            dbPermits.release();
+        }
+    }
+
+    private void startWorkers() {
+        if (workers != null) {
+            return;
+        }
+        int count = Math.max(1, settings.getWorkers());
+        AtomicInteger number = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(count, runnable -> {
+            Thread thread = new Thread(runnable, "crawl-worker-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < count; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    private ExecutorService fetchers() {
+        lock.lock();
+        try {
+            if (fetchers == null) {
+                AtomicInteger number = new AtomicInteger();
+                fetchers = Executors.newFixedThreadPool(
+                    Math.max(1, settings.getWorkers()), runnable -> {
+                        Thread thread = new Thread(
+                            runnable, "page-fetcher-" + number.incrementAndGet()
+                        );
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                );
+            }
+            return fetchers;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            SiteCrawl crawl;
+            String url;
+            int attempt;
+            lock.lock();
+            try {
+                crawl = next();
+                url = crawl.poll(System.currentTimeMillis());
+                attempt = crawl.getAttempts().getOrDefault(url, 0);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            FetchResult result = FetchResult.skipped();
+            try {
+                result = newTask(crawl, url, attempt >= settings.getMaxRetries()).call();
+            } catch (Exception ex) {
+                log.error("Crawl task failed: " + url, ex);
+            } finally {
+                complete(crawl, url, attempt, result);
+            }
+        }
+    }
+
+    private SiteCrawl next() throws InterruptedException {
+        while (true) {
+            long now = System.currentTimeMillis();
+            long wait = IDLE_MILLIS;
+            int size = active.size();
+            for (int i = 0; i < size; i++) {
+                SiteCrawl crawl = active.peekFirst();
+                int limit = crawl.getHost().limit(now);
+                boolean ready = !crawl.isStopped() &&
+                    crawl.hasWork(now) &&
+                    crawl.getInFlight() < limit;
+                if (!crawl.isStopped() && limit == 0) {
+                    wait = Math.min(wait, crawl.getHost().getOpenUntil() - now);
+                } else if (!crawl.isStopped() && !crawl.hasWork(now)) {
+                    wait = Math.min(wait, crawl.nextRetryAt() - now);
+                }
+                if (ready && crawl.getNextFetchAt() > now) {
+                    wait = Math.min(wait, crawl.getNextFetchAt() - now);
+                    ready = false;
+                }
+                if (!ready) {
+                    rotate(crawl);
+                    continue;
+                }
+                crawl.setInFlight(crawl.getInFlight() + 1)
+                    .setNextFetchAt(now + settings.getDelay())
+                    .setCredits(crawl.getCredits() - 1);
+                if (crawl.getCredits() <= 0) {
+                    rotate(crawl);
+                }
+                return crawl;
+            }
+            changed.await(Math.max(1, wait), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void halt(SiteCrawl crawl) {
+        crawl.setStopped(true);
+        crawl.clear();
+        if (crawl.isFinished()) {
+            finish(crawl);
+        }
+    }
+
+    private void rotate(SiteCrawl crawl) {
+        active.pollFirst();
+        active.addLast(crawl.setCredits(crawl.getWeight()));
+    }
+
+    private void complete(SiteCrawl crawl, String url, int attempt, FetchResult result) {
+        boolean indexed = false;
+        boolean unavailable = false;
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            HostController host = crawl.getHost();
+            crawl.setInFlight(crawl.getInFlight() - 1);
+            boolean retry = false;
+            switch (result.outcome()) {
+                case SUCCESS -> host.onSuccess(result.latency());
+                case TRANSIENT -> {
+                    host.onFailure(now);
+                    if (result.retryAfter() > 0) {
+                        crawl.setNextFetchAt(
+                            Math.max(crawl.getNextFetchAt(), now + result.retryAfter())
+                        );
+                    }
+                    retry = !crawl.isStopped() && attempt < settings.getMaxRetries();
+                }
+                default -> {
+                }
+            }
+            if (retry) {
+                long backoff = settings.getRetryDelay() << Math.min(attempt, 10);
+                backoff += ThreadLocalRandom.current().nextLong(backoff / 5 + 1);
+                crawl.getAttempts().put(url, attempt + 1);
+                crawl.getRetries().add(
+                    new SiteCrawl.Retry(url, now + Math.max(backoff, result.retryAfter()))
+                );
+            } else {
+                crawl.getAttempts().remove(url);
+                crawl.setProcessed(crawl.getProcessed() + 1);
+            }
+            if (host.isExhausted() && !crawl.isStopped()) {
+                log.warn("Giving up on unavailable site " + crawl.getRootUrl());
+                unavailable = true;
+                halt(crawl);
+            }
+            if (crawl.isFinished()) {
+                indexed = finish(crawl);
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (unavailable) {
+            withDb(() -> siteRepository.updateFailedStatus(
+                SiteStatus.FAILED.name(), UNAVAILABLE_ERROR, crawl.getSite().getId()
+            ));
+        }
+        publishFinished();
+        if (indexed) {
+            eventPublisher.publishEvent(new SiteIndexedEvent(crawl.getSite().getId()));
+        }
+    }
+
+    private void publishFinished() {
+        List<Long> siteIds;
+        lock.lock();
+        try {
+            siteIds = List.copyOf(finished);
+            finished.clear();
+        } finally {
+            lock.unlock();
+        }
+        siteIds.forEach(
+            siteId -> eventPublisher.publishEvent(new SiteCrawlFinishedEvent(siteId))
+        );
+    }
+
+    private boolean finish(SiteCrawl crawl) {
+        Iterator<SiteCrawl> iterator = active.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == crawl) {
+                iterator.remove();
+            }
+        }
+        if (!crawls.remove(crawl.getSite().getId(), crawl)) {
+            return false;
+        }
+        finished.add(crawl.getSite().getId());
+        if (!crawl.isStopped()) {
+            siteRepository.updateStatus(SiteStatus.INDEXED.name(), crawl.getSite().getId());
+            log.info("Indexed site " + crawl.getRootUrl() + ", pages: " + crawl.getProcessed());
+            return true;
+        }
+        return false;
+    }
+
+    private SiteCrawl newCrawl(Site site, SiteConfig siteConfig) {
+        SiteCrawl crawl = new SiteCrawl(site, siteConfig.getUrl().trim(), siteConfig.getWeight());
+        return crawl
+            .setMaxBodySize(
+                siteConfig.getMaxBodySize() > 0 ?
+                    siteConfig.getMaxBodySize() : settings.getMaxBodySize()
+            )
+            .setHost(new HostController(settings, settings.getPerSite() * crawl.getWeight()));
+    }
+
+    PageTask newTask(SiteCrawl crawl, String url) {
+        return newTask(crawl, url, true);
+    }
+
+    private PageTask newTask(SiteCrawl crawl, String url, boolean lastAttempt) {
+        return new PageTask(
+            crawl, url, lastAttempt, this, settings,
+            siteRepository, sitePageRepository,
+            lemmaRepository, jdbcRepository,
+            indexRepository, indexStatistics, siteCounters
+        );
+    }
+}
@@ -0,0 +1,27 @@
+package searchengine.task;
+
+record FetchResult(Outcome outcome, long latency, long retryAfter) {
+
+    static FetchResult success(long latency) {
+        return new FetchResult(Outcome.SUCCESS, latency, 0);
+    }
+
+    static FetchResult skipped() {
+        return new FetchResult(Outcome.SKIPPED, 0, 0);
+    }
+
+    static FetchResult transientFailure(long latency, long retryAfter) {
+        return new FetchResult(Outcome.TRANSIENT, latency, retryAfter);
+    }
+
+    static FetchResult failed(long latency) {
+        return new FetchResult(Outcome.FAILED, latency, 0);
+    }
+
+    enum Outcome {
+        SUCCESS,
+        SKIPPED,
+        TRANSIENT,
+        FAILED
+    }
+}
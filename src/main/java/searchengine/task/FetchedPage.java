@@ -0,0 +1,11 @@
+package searchengine.task;
+
+import searchengine.model.PageLanguage;
+
+import java.util.HashMap;
+import java.util.List;
+
+record FetchedPage(String path, int code, String html,
+                   HashMap<String, List<Integer>> lemmas, int length,
+                   PageLanguage language) {
+}
@@ -0,0 +1,88 @@
+package searchengine.task;
+
+import searchengine.config.CrawlSettings;
+
+import java.util.concurrent.TimeUnit;
+
+class HostController {
+
+    private static final double ALPHA = 0.2;
+    private static final long MAX_COOLDOWN = TimeUnit.MINUTES.toMillis(5);
+
+    private final CrawlSettings settings;
+    private final int maxLimit;
+    private double limit;
+    private double latency;
+    private double errorRate;
+    private int failures;
+    private int trips;
+    private long openUntil;
+    private long cooldown;
+
+    HostController(CrawlSettings settings, int maxLimit) {
+        this.settings = settings;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = this.maxLimit;
+        this.cooldown = settings.getBreakerCooldown();
+    }
+
+    int limit(long now) {
+        if (openUntil > now) {
+            return 0;
+        }
+        return openUntil > 0 ? 1 : Math.max(1, (int) limit);
+    }
+
+    long getOpenUntil() {
+        return openUntil;
+    }
+
+    String state(long now) {
+        return openUntil > now ? "OPEN" : openUntil > 0 ? "HALF_OPEN" : "CLOSED";
+    }
+
+    long getLatency() {
+        return Math.round(latency);
+    }
+
+    double getErrorRate() {
+        return errorRate;
+    }
+
+    boolean isExhausted() {
+        return trips > settings.getBreakerMaxTrips();
+    }
+
+    void onSuccess(long millis) {
+        latency = latency == 0 ? millis : latency + ALPHA * (millis - latency);
+        errorRate -= ALPHA * errorRate;
+        failures = 0;
+        if (openUntil > 0) {
+            openUntil = 0;
+            trips = 0;
+            cooldown = settings.getBreakerCooldown();
+        }
+        if (millis > settings.getSlowFetch()) {
+            limit = Math.max(1, limit / 2);
+        } else {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    void onFailure(long now) {
+        errorRate += ALPHA * (1 - errorRate);
+        failures++;
+        limit = Math.max(1, limit / 2);
+        if (openUntil > 0 && openUntil <= now) {
+            cooldown = Math.min(MAX_COOLDOWN, cooldown * 2);
+            open(now);
+        } else if (openUntil == 0 && failures >= settings.getBreakerFailures()) {
+            open(now);
+        }
+    }
+
+    private void open(long now) {
+        openUntil = now + cooldown;
+        trips++;
+    }
+}
@@ -0,0 +1,50 @@
+package searchengine.task;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Getter
+public class IndexJob {
+
+    private final String id = UUID.randomUUID().toString();
+    private final LocalDateTime started = LocalDateTime.now();
+    private final int total;
+    private final AtomicInteger indexed = new AtomicInteger();
+    private final Map<String, String> errors = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingSites = new AtomicInteger();
+    private volatile LocalDateTime finished;
+
+    public IndexJob(int total) {
+        this.total = total;
+    }
+
+    public boolean isFinished() {
+        return finished != null;
+    }
+
+    public void addSites(int count) {
+        if (count == 0) {
+            finished = LocalDateTime.now();
+        }
+        pendingSites.addAndGet(count);
+    }
+
+    public void siteDone() {
+        if (pendingSites.decrementAndGet() == 0) {
+            finished = LocalDateTime.now();
+        }
+    }
+
+    public void indexed(int count) {
+        indexed.addAndGet(count);
+    }
+
+    public void fail(String url, String error) {
+        errors.put(url, error != null ? error : "Неизвестная ошибка");
+    }
+}
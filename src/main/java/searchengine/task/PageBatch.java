@@ -0,0 +1,168 @@
+package searchengine.task;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import searchengine.index.IndexStatistics;
+import searchengine.index.SiteCounters;
+import searchengine.index.SiteStatistics;
+import searchengine.model.Index;
+import searchengine.model.Lemma;
+import searchengine.model.Site;
+import searchengine.model.SitePage;
+import searchengine.repository.IndexRepository;
+import searchengine.repository.JdbcRepository;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.SitePageRepository;
+import searchengine.utils.PositionUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+@Slf4j
+@AllArgsConstructor
+public class PageBatch implements Runnable {
+
+    private static final int BAD_CODE = 400;
+
+    private final SiteCrawl crawl;
+    private final Collection<String> urls;
+    private final IndexJob job;
+    private final CrawlScheduler scheduler;
+    private final Executor fetchers;
+    private final SitePageRepository sitePageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final JdbcRepository jdbcRepository;
+    private final IndexRepository indexRepository;
+    private final IndexStatistics indexStatistics;
+    private final SiteCounters siteCounters;
+
+    @Override
+    public void run() {
+        List<String> duplicates = new ArrayList<>();
+        Map<String, FetchedPage> pages = fetchAll(duplicates);
+        if (pages.isEmpty()) {
+            return;
+        }
+        try {
+            scheduler.withDb(() -> store(pages.values()));
+            job.indexed(pages.size() + duplicates.size());
+        } catch (Exception ex) {
+            log.error("Storing page batch failed", ex);
+            pages.values().forEach(page -> job.fail(
+                crawl.getRootUrl() + page.path(), "Ошибка сохранения страницы"
+            ));
+            duplicates.forEach(url -> job.fail(url, "Ошибка сохранения страницы"));
+        }
+    }
+
+    private Map<String, FetchedPage> fetchAll(List<String> duplicates) {
+        Map<String, CompletableFuture<FetchedPage>> futures = new LinkedHashMap<>();
+        for (String url : urls) {
+            futures.put(url, CompletableFuture.supplyAsync(
+                () -> fetch(url), fetchers
+            ));
+        }
+        Map<String, FetchedPage> pages = new LinkedHashMap<>();
+        futures.forEach((url, future) -> {
+            try {
+                FetchedPage page = future.join();
+                if (pages.putIfAbsent(page.path(), page) != null) {
+                    duplicates.add(url);
+                }
+            } catch (CompletionException ex) {
+                job.fail(url, ex.getCause().getMessage());
+            }
+        });
+        return pages;
+    }
+
+    private FetchedPage fetch(String url) {
+        try {
+            return scheduler.newTask(crawl, url).fetch();
+        } catch (RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new CompletionException(ex);
+        }
+    }
+
+    private void store(Collection<FetchedPage> pages) {
+        Site site = crawl.getSite();
+        Long siteId = site.getId();
+        List<String> paths = pages.stream().map(FetchedPage::path).toList();
+        Map<String, Long> oldIds = new HashMap<>();
+        List<Integer> oldLengths = new ArrayList<>();
+        for (Object[] row : sitePageRepository.getByPaths(siteId, paths)) {
+            oldIds.put((String) row[1], ((Number) row[0]).longValue());
+            oldLengths.add(((Number) row[2]).intValue());
+        }
+        if (!oldIds.isEmpty()) {
+            lemmaRepository.updateByPages(oldIds.values());
+            indexRepository.deleteByPageIds(oldIds.values());
+        }
+
+        List<SitePage> sitePages = new ArrayList<>();
+        for (FetchedPage page : pages) {
+            sitePages.add(
+                new SitePage()
+                    .setSite(site)
+                    .setPath(page.path())
+                    .setCode(page.code())
+                    .setContent(page.html())
+                    .setLength(page.length())
+                    .setLanguage(page.language())
+            );
+        }
+        siteCounters.addPages(siteId, jdbcRepository.upsertPageBatch(sitePages));
+        Map<String, Long> ids = new HashMap<>();
+        for (Object[] row : sitePageRepository.getByPaths(siteId, paths)) {
+            ids.put((String) row[1], ((Number) row[0]).longValue());
+        }
+
+        Map<String, Integer> frequency = new HashMap<>();
+        for (FetchedPage page : pages) {
+            if (page.code() < BAD_CODE) {
+                page.lemmas().keySet().forEach(
+                    lemma -> frequency.merge(lemma, 1, Integer::sum)
+                );
+            }
+        }
+        if (!frequency.isEmpty()) {
+            List<Lemma> lemmas = new ArrayList<>();
+            frequency.forEach((lemma, count) -> lemmas.add(new Lemma(site, lemma, count)));
+            siteCounters.addLemmas(siteId, jdbcRepository.insertLemmaBatch(lemmas));
+            Map<String, Lemma> lemmaSaved = new HashMap<>();
+            lemmaRepository.getByLemma(siteId, frequency.keySet())
+                .forEach(lemma -> lemmaSaved.put(lemma.getLemma(), lemma));
+            List<Index> indices = new ArrayList<>();
+            for (FetchedPage page : pages) {
+                Long pageId = ids.get(page.path());
+                if (page.code() >= BAD_CODE || pageId == null) {
+                    continue;
+                }
+                SitePage sitePage = new SitePage().setId(pageId);
+                page.lemmas().forEach((lemma, positions) -> {
+                    Lemma saved = lemmaSaved.get(lemma);
+                    if (saved != null) {
+                        indices.add(
+                            new Index(sitePage, saved, positions.size())
+                                .setPositions(PositionUtils.encode(positions))
+                        );
+                    }
+                });
+            }
+            jdbcRepository.insertIndexBatch(indices);
+        }
+
+        SiteStatistics statistics = indexStatistics.get(siteId);
+        oldLengths.forEach(statistics::removePage);
+        pages.forEach(page -> statistics.addPage(page.length()));
+    }
+}
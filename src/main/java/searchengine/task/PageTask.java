@@ -0,0 +1,407 @@
+package searchengine.task;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import searchengine.config.CrawlSettings;
+import searchengine.index.IndexStatistics;
+import searchengine.index.SiteCounters;
+import searchengine.jfr.LemmatizationEvent;
+import searchengine.jfr.PageFetchEvent;
+import searchengine.jfr.PageParseEvent;
+import searchengine.jfr.PageProcessEvent;
+import searchengine.model.Index;
+import searchengine.model.Lemma;
+import searchengine.model.PageLanguage;
+import searchengine.model.Site;
+import searchengine.model.SitePage;
+import searchengine.model.error.ApplicationError;
+import searchengine.repository.IndexRepository;
+import searchengine.repository.JdbcRepository;
+import searchengine.repository.LemmaRepository;
+import searchengine.repository.SitePageRepository;
+import searchengine.repository.SiteRepository;
+import searchengine.utils.LemmaUtils;
+import searchengine.utils.PositionUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+@Slf4j
+@AllArgsConstructor
+public class PageTask implements Callable<FetchResult> {
+
+    private static final int BAD_CODE = 400;
+    private static final Set<Integer> TRANSIENT_CODES = Set.of(429, 500, 502, 503, 504);
+    private static final long MAX_RETRY_AFTER = TimeUnit.MINUTES.toMillis(10);
+    private static final Pattern EXCESS_LINK = Pattern.compile("(png|pdf|jpg|gif|#)");
+
+    private final SiteCrawl crawl;
+    private final String url;
+    private final boolean lastAttempt;
+    private final CrawlScheduler scheduler;
+    private final CrawlSettings settings;
+    private final SiteRepository siteRepository;
+    private final SitePageRepository sitePageRepository;
+    private final LemmaRepository lemmaRepository;
+    private final JdbcRepository jdbcRepository;
+    private final IndexRepository indexRepository;
+    private final IndexStatistics indexStatistics;
+    private final SiteCounters siteCounters;
+
+    @Override
+    public FetchResult call() {
+        PageProcessEvent event = new PageProcessEvent();
+        event.begin();
+        FetchResult result = process();
+        if (event.shouldCommit()) {
+            event.setUrl(url)
+                .setSite(crawl.getRootUrl())
+                .setOutcome(result.outcome().name());
+            event.commit();
+        }
+        return result;
+    }
+
+    private FetchResult process() {
+        Site site = crawl.getSite();
+        long started = System.currentTimeMillis();
+        try {
+            String formatUrl = getFormatUrl(url);
+            if (formatUrl.isBlank()) {
+                return FetchResult.skipped();
+            }
+            Connection.Response response;
+            try {
+                response = execute(url);
+            } catch (IOException ex) {
+                log.debug("Fetch failed: " + url + ": " + ex.getMessage());
+                if (lastAttempt) {
+                    siteRepository.updateLastError(
+                        "Неуспешное соединение: " + url, site.getId()
+                    );
+                }
+                return FetchResult.transientFailure(
+                    System.currentTimeMillis() - started, 0
+                );
+            }
+            long latency = System.currentTimeMillis() - started;
+            boolean transientCode = TRANSIENT_CODES.contains(response.statusCode());
+            if (transientCode && !lastAttempt) {
+                discard(response);
+                return FetchResult.transientFailure(latency, retryAfter(response));
+            }
+            if (!isAccepted(response)) {
+                skipPage(response, formatUrl);
+                return transientCode ?
+                    FetchResult.transientFailure(latency, 0) : FetchResult.skipped();
+            }
+            Document document = parse(response);
+            String html = document.html();
+            Map<String, String> children = collectChildren(document);
+            String text = text(response, document);
+            HashMap<String, List<Integer>> lemmas = lemmatization(text);
+            int length = length(lemmas);
+            PageLanguage language = LemmaUtils.language(text);
+            List<String> newUrls = new ArrayList<>();
+            scheduler.withDb(() -> {
+                int update = sitePageRepository.update(
+                    response.statusCode(), html, length, language.name(),
+                    site.getId(), formatUrl
+                );
+                if (update < 1) {
+                    throw new ApplicationError("Страница не обновлена");
+                }
+                siteRepository.updateStatusTime(LocalDateTime.now(), site.getId());
+                children.forEach((path, childUrl) -> {
+                    if (sitePageRepository.insert(site.getId(), path) > 0) {
+                        newUrls.add(childUrl);
+                    }
+                });
+                SitePage page = sitePageRepository.getByPath(formatUrl, site.getId());
+                if (page == null) {
+                    log.error("SitePage is null");
+                    throw new ApplicationError("Страница не найдена");
+                }
+                appendLemma(page, lemmas);
+            });
+            indexStatistics.get(site.getId()).addPage(length);
+            siteCounters.addPages(site.getId(), newUrls.size());
+            scheduler.offer(crawl, newUrls);
+            return transientCode ?
+                FetchResult.transientFailure(latency, 0) : FetchResult.success(latency);
+        } catch (Exception ex) {
+            siteRepository.updateLastError(ex.getMessage(), site.getId());
+            return FetchResult.failed(System.currentTimeMillis() - started);
+        }
+    }
+
+    public void indexPage() {
+        try {
+            FetchedPage fetched = fetch();
+            scheduler.withDb(() -> {
+                removePage(fetched.path());
+                SitePage page = sitePageRepository.saveAndFlush(
+                    new SitePage()
+                        .setSite(crawl.getSite())
+                        .setPath(fetched.path())
+                        .setCode(fetched.code())
+                        .setContent(fetched.html())
+                        .setLength(fetched.length())
+                        .setLanguage(fetched.language())
+                );
+                siteCounters.addPages(crawl.getSite().getId(), 1);
+                appendLemma(page, fetched.lemmas());
+            });
+            indexStatistics.get(crawl.getSite().getId()).addPage(fetched.length());
+        } catch (Exception ex) {
+            log.info("Indexing one page", ex);
+            throw new ApplicationError(ex.getMessage());
+        }
+    }
+
+    FetchedPage fetch() throws IOException {
+        String formatUrl = getFormatUrl(url);
+        if (formatUrl.isBlank()) {
+            throw new ApplicationError("Пустой URL");
+        }
+        Connection.Response response = getResponse(url);
+        if (!isAccepted(response)) {
+            discard(response);
+            throw new ApplicationError(
+                "Неподдерживаемый тип содержимого: " + response.contentType()
+            );
+        }
+        Document document = parse(response);
+        String text = text(response, document);
+        HashMap<String, List<Integer>> lemmas = lemmatization(text);
+        return new FetchedPage(
+            formatUrl, response.statusCode(), document.html(),
+            lemmas, length(lemmas), LemmaUtils.language(text)
+        );
+    }
+
+    private Map<String, String> collectChildren(Document document) {
+        Map<String, String> children = new LinkedHashMap<>();
+        for (Element element : document.select("a")) {
+            String absUrl = element.absUrl("href");
+            if (!isCorrectUrl(absUrl)) {
+                continue;
+            }
+            String formatUrl = getFormatUrl(absUrl);
+            if (!formatUrl.isBlank()) {
+                children.putIfAbsent(formatUrl, absUrl);
+            }
+        }
+        return children;
+    }
+
+    private void removePage(String url) {
+        Long pageId = sitePageRepository.getIdByPath(url, crawl.getSite().getId());
+        if (pageId != null) {
+            indexStatistics.get(crawl.getSite().getId())
+                .removePage(sitePageRepository.getLengthById(pageId));
+            lemmaRepository.updateByPage(pageId);
+            indexRepository.deleteByPageId(pageId);
+            sitePageRepository.deleteById(pageId);
+            siteCounters.addPages(crawl.getSite().getId(), -1);
+        }
+    }
+
+    private String text(Connection.Response response, Document document) {
+        return response.statusCode() >= BAD_CODE ?
+            "" : LemmaUtils.cleanHtmlBody(document);
+    }
+
+    private HashMap<String, List<Integer>> lemmatization(String text) {
+        LemmatizationEvent event = new LemmatizationEvent();
+        event.begin();
+        try {
+            HashMap<String, List<Integer>> lemmas = LemmaUtils.positions(text);
+            if (event.shouldCommit()) {
+                event.setUrl(url)
+                    .setSite(crawl.getRootUrl())
+                    .setSize(text.length())
+                    .setWords(length(lemmas))
+                    .setLemmas(lemmas.size())
+                    .setLanguage(LemmaUtils.language(text).name());
+                event.commit();
+            }
+            return lemmas;
+        } catch (Exception ex) {
+            log.error("Lemmatization failed", ex);
+            throw new ApplicationError("Ошибка лемматизации");
+        }
+    }
+
+    private int length(HashMap<String, List<Integer>> lemmas) {
+        return lemmas.values().stream().mapToInt(List::size).sum();
+    }
+
+    private void appendLemma(SitePage page, HashMap<String, List<Integer>> lemmasRaw) {
+        if (page.getCode() >= BAD_CODE || lemmasRaw.isEmpty()) {
+            return;
+        }
+        Site site = crawl.getSite();
+        try {
+            List<Lemma> lemmas = new ArrayList<>();
+            List<Index> indices = new ArrayList<>();
+            lemmasRaw.forEach(
+                (lemma, positions) ->
+                    lemmas.add(new Lemma(site, lemma, 1))
+            );
+            siteCounters.addLemmas(site.getId(), jdbcRepository.insertLemmaBatch(lemmas));
+            List<Lemma> lemmaSaved = lemmaRepository.getByLemma(
+                site.getId(), lemmasRaw.keySet()
+            );
+            for (Lemma lemma : lemmaSaved) {
+                List<Integer> positions = lemmasRaw.get(lemma.getLemma());
+                if (positions == null) {
+                    continue;
+                }
+                indices.add(
+                    new Index(page, lemma, positions.size())
+                        .setPositions(PositionUtils.encode(positions))
+                );
+            }
+            jdbcRepository.insertIndexBatch(indices);
+        } catch (Exception ex) {
+            log.error("Append lemmas failed", ex);
+            throw new ApplicationError("Ошибка лемматизации");
+        }
+    }
+
+    private void skipPage(Connection.Response response, String formatUrl) {
+        discard(response);
+        log.debug("Skipped " + url + ": " + response.contentType());
+        scheduler.withDb(() -> sitePageRepository.update(
+            response.statusCode(), null, 0, PageLanguage.NONE.name(),
+            crawl.getSite().getId(), formatUrl
+        ));
+    }
+
+    private void discard(Connection.Response response) {
+        try {
+            response.bodyStream().close();
+        } catch (Exception ex) {
+            log.debug("Closing response body failed", ex);
+        }
+    }
+
+    private boolean isAccepted(Connection.Response response) {
+        String contentType = response.contentType();
+        if (contentType == null) {
+            return true;
+        }
+        String mimeType = contentType.split(";")[0].trim().toLowerCase();
+        return settings.getAllowedTypes().contains(mimeType);
+    }
+
+    private long retryAfter(Connection.Response response) {
+        String value = response.header("Retry-After");
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        long millis;
+        try {
+            millis = TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException ex) {
+            try {
+                millis = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME)
+                    .toInstant().toEpochMilli() - System.currentTimeMillis();
+            } catch (DateTimeParseException parseEx) {
+                return 0;
+            }
+        }
+        return Math.max(0, Math.min(millis, MAX_RETRY_AFTER));
+    }
+
+    private Connection.Response getResponse(String url) {
+        try {
+            return execute(url);
+        } catch (Exception ex) {
+            log.error("Connect to site failed", ex);
+            throw new ApplicationError("Неуспешное соединение");
+        }
+    }
+
+    private Connection.Response execute(String url) throws IOException {
+        PageFetchEvent event = new PageFetchEvent();
+        event.begin();
+        Connection.Response response = null;
+        if (settings.isHeadCheck()) {
+            Connection.Response head = connect(url)
+                .method(Connection.Method.HEAD)
+                .execute();
+            if (!isAccepted(head)) {
+                response = head;
+            }
+        }
+        if (response == null) {
+            response = connect(url).execute();
+        }
+        if (event.shouldCommit()) {
+            String contentLength = response.header("Content-Length");
+            event.setUrl(url)
+                .setSite(crawl.getRootUrl())
+                .setStatus(response.statusCode())
+                .setSize(contentLength != null && contentLength.matches("\\d+") ?
+                    Long.parseLong(contentLength) : -1);
+            event.commit();
+        }
+        return response;
+    }
+
+    private Document parse(Connection.Response response) throws IOException {
+        PageParseEvent event = new PageParseEvent();
+        event.begin();
+        Document document = response.parse();
+        if (event.shouldCommit()) {
+            event.setUrl(url)
+                .setSite(crawl.getRootUrl())
+                .setSize(document.html().length());
+            event.commit();
+        }
+        return document;
+    }
+
+    private Connection connect(String url) {
+        return Jsoup
+                .connect(url)
+                .ignoreHttpErrors(true)
+                .ignoreContentType(true)
+                .maxBodySize(crawl.getMaxBodySize())
+                .userAgent("SearchEngineBot")
+                .referrer("https://www.google.com");
+    }
+
+    private String getFormatUrl(String url) {
+        String rootUrl = crawl.getRootUrl();
+        url = url.trim();
+        if (url.equals(rootUrl) || url.equals(rootUrl + "/")) {
+            return "/";
+        }
+        return url.startsWith(rootUrl) ?
+            url.substring(rootUrl.length()) : url;
+    }
+
+    private boolean isCorrectUrl(String url) {
+        return url.startsWith(crawl.getRootUrl()) &&
+            !EXCESS_LINK.matcher(url).find();
+    }
+}
@@ -0,0 +1,72 @@
+package searchengine.task;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import searchengine.model.Site;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class SiteCrawl {
+
+    public SiteCrawl(Site site, String rootUrl, int weight) {
+        this.site = site;
+        this.rootUrl = rootUrl.endsWith("/") ?
+            rootUrl.substring(0, rootUrl.length() - 1) : rootUrl;
+        this.weight = Math.max(1, weight);
+        this.credits = this.weight;
+    }
+
+    private final Site site;
+    private final String rootUrl;
+    private final int weight;
+    private final Deque<String> frontier = new ArrayDeque<>();
+    private final PriorityQueue<Retry> retries = new PriorityQueue<>(
+        Comparator.comparingLong(Retry::dueAt)
+    );
+    private final Map<String, Integer> attempts = new HashMap<>();
+
+    private int maxBodySize;
+    private HostController host;
+    private int credits;
+    private int inFlight;
+    private long processed;
+    private long nextFetchAt;
+    private volatile boolean stopped;
+
+    public boolean isFinished() {
+        return frontier.isEmpty() && retries.isEmpty() && inFlight == 0;
+    }
+
+    boolean hasWork(long now) {
+        return !frontier.isEmpty() || (!retries.isEmpty() && retries.peek().dueAt() <= now);
+    }
+
+    long nextRetryAt() {
+        return retries.isEmpty() ? Long.MAX_VALUE : retries.peek().dueAt();
+    }
+
+    String poll(long now) {
+        if (!retries.isEmpty() && retries.peek().dueAt() <= now) {
+            return retries.poll().url();
+        }
+        return frontier.pollFirst();
+    }
+
+    void clear() {
+        frontier.clear();
+        retries.clear();
+        attempts.clear();
+    }
+
+    record Retry(String url, long dueAt) {
+    }
+}
@@ -0,0 +1,196 @@
+package searchengine.task;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import searchengine.config.CrawlSettings;
+import searchengine.config.SiteConfig;
+import searchengine.config.SitesList;
+import searchengine.index.IndexStatistics;
+import searchengine.model.Site;
+import searchengine.model.SiteStatus;
+import searchengine.model.event.SiteCrawlFinishedEvent;
+import searchengine.model.event.SiteIndexedEvent;
+import searchengine.repository.SiteLeaseRepository;
+import searchengine.repository.SiteRepository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class SiteLeases {
+
+    private static final String STOPPED_ERROR = "Индексация остановлена пользователем";
+
+    private final CrawlSettings settings;
+    private final SitesList sites;
+    private final SiteRepository siteRepository;
+    private final SiteLeaseRepository siteLeaseRepository;
+    private final CrawlScheduler crawlScheduler;
+    private final IndexStatistics indexStatistics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Set<Long> owned = ConcurrentHashMap.newKeySet();
+    private final Map<Long, Object> indexedTimes = new ConcurrentHashMap<>();
+    private volatile boolean indexedTimesLoaded;
+
+    public SiteLeases(CrawlSettings settings,
+                      SitesList sites,
+                      SiteRepository siteRepository,
+                      SiteLeaseRepository siteLeaseRepository,
+                      CrawlScheduler crawlScheduler,
+                      IndexStatistics indexStatistics,
+                      ApplicationEventPublisher eventPublisher) {
+        this.settings = settings;
+        this.sites = sites;
+        this.siteRepository = siteRepository;
+        this.siteLeaseRepository = siteLeaseRepository;
+        this.crawlScheduler = crawlScheduler;
+        this.indexStatistics = indexStatistics;
+        this.eventPublisher = eventPublisher;
+        log.info("Crawl node id: " + settings.getNodeId());
+    }
+
+    public boolean isRunning() {
+        return siteLeaseRepository.countPending() > 0;
+    }
+
+    public void request(Site site) {
+        siteLeaseRepository.request(site.getId());
+    }
+
+    public void stopAll() {
+        List<Long> pending = siteLeaseRepository.getPending();
+        siteLeaseRepository.cancelAll();
+        pending.forEach(
+            siteId -> siteRepository.updateFailedStatus(
+                SiteStatus.FAILED.name(), STOPPED_ERROR, siteId
+            )
+        );
+        owned.clear();
+    }
+
+    public void remove(List<Long> siteIds) {
+        siteLeaseRepository.delete(siteIds);
+    }
+
+    @Scheduled(fixedDelayString = "${crawl-settings.lease-heartbeat:5000}")
+    public synchronized void heartbeat() {
+        String node = settings.getNodeId();
+        if (!owned.isEmpty()) {
+            siteLeaseRepository.renew(owned, node, ttlSeconds());
+            Set<Long> actual = new HashSet<>(siteLeaseRepository.getOwned(node));
+            for (Long siteId : List.copyOf(owned)) {
+                if (!actual.contains(siteId)) {
+                    owned.remove(siteId);
+                    crawlScheduler.abandon(siteId);
+                    log.warn("Lost lease on site " + siteId);
+                }
+            }
+        }
+        acquire();
+        refreshIndexed();
+    }
+
+    public synchronized void acquire() {
+        String node = settings.getNodeId();
+        for (Long siteId : siteLeaseRepository.getClaimable()) {
+            if (owned.size() >= settings.getMaxLeases()) {
+                return;
+            }
+            if (siteLeaseRepository.claim(siteId, node, ttlSeconds()) == 1) {
+                start(siteId);
+            }
+        }
+    }
+
+    @EventListener
+    public void onCrawlFinished(SiteCrawlFinishedEvent event) {
+        if (owned.remove(event.getSiteId())) {
+            siteLeaseRepository.release(event.getSiteId(), settings.getNodeId());
+        }
+    }
+
+    @EventListener
+    public void onSiteIndexed(SiteIndexedEvent event) {
+        siteRepository.findById(event.getSiteId()).ifPresent(
+            site -> indexedTimes.put(site.getId(), site.getStatusTime())
+        );
+    }
+
+    @PreDestroy
+    public void handOver() {
+        if (!owned.isEmpty()) {
+            siteLeaseRepository.handOver(settings.getNodeId());
+            owned.clear();
+        }
+    }
+
+    private void refreshIndexed() {
+        Map<Long, Object> actual = new HashMap<>();
+        for (Object[] row : siteRepository.getIndexedTimes()) {
+            actual.put(((Number) row[0]).longValue(), normalize(row[1]));
+        }
+        List<Long> changed = new ArrayList<>();
+        actual.forEach((siteId, time) -> {
+            if (!Objects.equals(indexedTimes.put(siteId, time), time)) {
+                changed.add(siteId);
+            }
+        });
+        indexedTimes.keySet().retainAll(actual.keySet());
+        if (!indexedTimesLoaded) {
+            indexedTimesLoaded = true;
+            return;
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        log.info("Sites indexed on another node: " + changed);
+        indexStatistics.reload();
+        changed.forEach(siteId -> eventPublisher.publishEvent(new SiteIndexedEvent(siteId)));
+    }
+
+    private Object normalize(Object time) {
+        return time instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : time;
+    }
+
+    private void start(Long siteId) {
+        Site site = siteRepository.findById(siteId).orElse(null);
+        SiteConfig siteConfig = site != null ? getSiteConfig(site.getUrl()) : null;
+        if (siteConfig == null) {
+            log.error("No configuration for leased site " + siteId);
+            siteLeaseRepository.release(siteId, settings.getNodeId());
+            return;
+        }
+        owned.add(siteId);
+        log.info("Took lease on site " + site.getUrl());
+        crawlScheduler.submit(site, siteConfig);
+    }
+
+    private SiteConfig getSiteConfig(String url) {
+        for (SiteConfig siteConfig : sites.getSites()) {
+            String configUrl = siteConfig.getUrl().trim();
+            configUrl = configUrl.endsWith("/") ?
+                configUrl.substring(0, configUrl.length() - 1) : configUrl;
+            if (configUrl.equals(url)) {
+                return siteConfig;
+            }
+        }
+        return null;
+    }
+
+    private long ttlSeconds() {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(settings.getLeaseTtl()));
+    }
+}
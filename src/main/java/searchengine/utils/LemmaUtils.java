@@ -7,10 +7,14 @@ import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.safety.Safelist;
+import searchengine.model.PageLanguage;
 import searchengine.model.error.ApplicationError;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 @Slf4j
@@ -18,7 +22,6 @@ public class LemmaUtils {
 
     private static final String HREF_TAG = "a[href]";
     private static final String EXCESS_TAGS = "<br>|<p>|&[a-z]+;";
-    private static final String SPACE = "\\s+";
     private static final String INVALID_SYMBOLS_RUS = "[^а-яё\\s]";
     private static final String INVALID_SYMBOLS_ENG = "[^a-z\\s]";
     private static final Pattern SERVICE_PARTS_RUS = Pattern.compile("СОЮЗ|МЕЖД|ПРЕДЛ|ЧАСТ");
@@ -44,45 +47,67 @@ public class LemmaUtils {
 
     public static HashMap<String, Integer> lemmatization(String text, boolean addPosition) {
         HashMap<String, Integer> lemmas = new HashMap<>();
-        if (text.isBlank()) {
-            return lemmas;
-        }
-        lemmatization(
-            text, luceneMorphRus,
-            lemmas, SERVICE_PARTS_RUS,
-            INVALID_SYMBOLS_RUS, addPosition
-        );
-        lemmatization(
-            text, luceneMorphEng,
-            lemmas, SERVICE_PARTS_ENG,
-            INVALID_SYMBOLS_ENG, addPosition
+        positions(text).forEach(
+            (lemma, positions) -> lemmas.put(
+                lemma, addPosition ?
+                    positions.get(positions.size() - 1) : positions.size()
+            )
         );
         return lemmas;
     }
 
-    private static void lemmatization(String text, LuceneMorphology luceneMorph,
-                                      HashMap<String, Integer> lemmas,
-                                      Pattern serviceParts, String invalid,
-                                      boolean addPosition) {
-        String[] words = textToArray(text, invalid);
-        for (int i = 0; i < words.length; i++) {
-            String wordFinal = words[i].trim();
-            if (wordFinal.isBlank()) {
+    public static HashMap<String, List<Integer>> positions(Document document) {
+        return positions(cleanHtmlBody(document));
+    }
+
+    public static HashMap<String, List<Integer>> positions(String text) {
+        HashMap<String, List<Integer>> lemmas = new HashMap<>();
+        List<Word> words = words(text);
+        for (int i = 0; i < words.size(); i++) {
+            Word word = words.get(i);
+            LuceneMorphology luceneMorph = morphology(word.language());
+            if (luceneMorph == null) {
                 continue;
             }
-            List<String> info = luceneMorph.getMorphInfo(wordFinal);
-            if (info.isEmpty() || serviceParts.matcher(info.get(0)).find()) {
+            List<String> info = luceneMorph.getMorphInfo(word.text());
+            if (info.isEmpty() || serviceParts(word.language()).matcher(info.get(0)).find()) {
                 continue;
             }
-            String lemma = luceneMorph.getNormalForms(wordFinal).get(0);
-            if (!addPosition) {
-                lemmas.compute(
-                    lemma, (k, v) -> v == null ? 1 : ++v
-                );
-            } else {
-                lemmas.put(lemma, i);
+            String lemma = luceneMorph.getNormalForms(word.text()).get(0);
+            lemmas.computeIfAbsent(lemma, k -> new ArrayList<>()).add(i);
+        }
+        return lemmas;
+    }
+
+    public static List<String> terms(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        for (Word word : words(text)) {
+            LuceneMorphology luceneMorph = morphology(word.language());
+            if (luceneMorph == null) {
+                terms.add(word.text());
+                continue;
+            }
+            List<String> info = luceneMorph.getMorphInfo(word.text());
+            if (info.isEmpty()) {
+                terms.add(word.text());
+            } else if (!serviceParts(word.language()).matcher(info.get(0)).find()) {
+                terms.add(luceneMorph.getNormalForms(word.text()).get(0));
             }
         }
+        return new ArrayList<>(terms);
+    }
+
+    public static PageLanguage language(String text) {
+        boolean russian = false;
+        boolean english = false;
+        for (int i = 0; i < text.length() && !(russian && english); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            russian |= isRussian(c);
+            english |= isEnglish(c);
+        }
+        return russian && english ? PageLanguage.MIXED :
+            russian ? PageLanguage.RUSSIAN :
+            english ? PageLanguage.ENGLISH : PageLanguage.NONE;
     }
 
     public static String getLemma(String word) {
@@ -98,6 +123,23 @@ public class LemmaUtils {
         }
     }
 
+    public static String getLemma(String word, PageLanguage language) {
+        if (language == null || language == PageLanguage.MIXED) {
+            return getLemma(word);
+        }
+        if (language == PageLanguage.NONE) {
+            return null;
+        }
+        boolean russian = language == PageLanguage.RUSSIAN;
+        String scriptWord = word.toLowerCase()
+            .replaceAll(russian ? INVALID_SYMBOLS_RUS : INVALID_SYMBOLS_ENG, "").trim();
+        if (scriptWord.isBlank()) {
+            return null;
+        }
+        return (russian ? luceneMorphRus : luceneMorphEng)
+            .getNormalForms(scriptWord).get(0);
+    }
+
     public static String cleanHtmlBody(Document document) {
         document.body().select(HREF_TAG).remove();
         String body = document.body().html()
@@ -108,10 +150,54 @@ public class LemmaUtils {
         ).trim();
     }
 
-    private static String[] textToArray(String text, String remove) {
-        return text
-            .toLowerCase()
-            .replaceAll(remove, " ")
-            .trim().split(SPACE);
+    private static List<Word> words(String text) {
+        String lower = text.toLowerCase();
+        List<Word> words = new ArrayList<>();
+        int start = -1;
+        boolean russian = false;
+        boolean english = false;
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (isRussian(c) || isEnglish(c)) {
+                if (start < 0) {
+                    start = i;
+                    russian = false;
+                    english = false;
+                }
+                russian |= isRussian(c);
+                english |= isEnglish(c);
+            } else if (start >= 0) {
+                words.add(new Word(
+                    lower.substring(start, i),
+                    russian && english ? PageLanguage.MIXED :
+                        russian ? PageLanguage.RUSSIAN : PageLanguage.ENGLISH
+                ));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static LuceneMorphology morphology(PageLanguage language) {
+        return switch (language) {
+            case RUSSIAN -> luceneMorphRus;
+            case ENGLISH -> luceneMorphEng;
+            default -> null;
+        };
+    }
+
+    private static Pattern serviceParts(PageLanguage language) {
+        return language == PageLanguage.RUSSIAN ? SERVICE_PARTS_RUS : SERVICE_PARTS_ENG;
+    }
+
+    private static boolean isRussian(char c) {
+        return (c >= 'а' && c <= 'я') || c == 'ё';
+    }
+
+    private static boolean isEnglish(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private record Word(String text, PageLanguage language) {
     }
 }
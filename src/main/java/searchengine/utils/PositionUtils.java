@@ -0,0 +1,130 @@
+package searchengine.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class PositionUtils {
+
+    private static final Pattern PHRASE = Pattern.compile("\"([^\"]+)\"");
+    private static final int[] EMPTY = new int[0];
+
+    public static byte[] encode(List<Integer> positions) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(positions.size() + 4);
+        int previous = 0;
+        for (int position : positions) {
+            int delta = position - previous;
+            previous = position;
+            while ((delta & ~0x7F) != 0) {
+                out.write((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            out.write(delta);
+        }
+        return out.toByteArray();
+    }
+
+    public static int[] decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return EMPTY;
+        }
+        int[] positions = new int[bytes.length];
+        int size = 0;
+        int previous = 0;
+        int i = 0;
+        while (i < bytes.length) {
+            int delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[i++];
+                delta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0 && i < bytes.length);
+            previous += delta;
+            positions[size++] = previous;
+        }
+        return Arrays.copyOf(positions, size);
+    }
+
+    public static List<Map<String, List<Integer>>> phrases(String query) {
+        List<Map<String, List<Integer>>> phrases = new ArrayList<>();
+        Matcher matcher = PHRASE.matcher(query);
+        while (matcher.find()) {
+            HashMap<String, List<Integer>> phrase = LemmaUtils.positions(matcher.group(1));
+            if (phrase.size() > 1) {
+                phrases.add(phrase);
+            }
+        }
+        return phrases;
+    }
+
+    public static boolean containsPhrase(Map<String, int[]> pagePositions,
+                                         Map<String, List<Integer>> phrase) {
+        String anchor = null;
+        int anchorOffset = 0;
+        for (Map.Entry<String, List<Integer>> entry : phrase.entrySet()) {
+            int[] positions = pagePositions.get(entry.getKey());
+            if (positions == null || positions.length == 0) {
+                return false;
+            }
+            if (anchor == null ||
+                positions.length < pagePositions.get(anchor).length) {
+                anchor = entry.getKey();
+                anchorOffset = entry.getValue().get(0);
+            }
+        }
+        for (int position : pagePositions.get(anchor)) {
+            int start = position - anchorOffset;
+            if (matchesAt(pagePositions, phrase, start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static int minimalSpan(Collection<int[]> lists) {
+        int[][] positions = lists.stream()
+            .filter(list -> list.length > 0)
+            .toArray(int[][]::new);
+        if (positions.length < 2 || positions.length != lists.size()) {
+            return 0;
+        }
+        int[] pointers = new int[positions.length];
+        int best = Integer.MAX_VALUE;
+        while (true) {
+            int min = 0;
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < positions.length; i++) {
+                int value = positions[i][pointers[i]];
+                if (value < positions[min][pointers[min]]) {
+                    min = i;
+                }
+                max = Math.max(max, value);
+            }
+            best = Math.min(best, max - positions[min][pointers[min]] + 1);
+            if (++pointers[min] == positions[min].length) {
+                return best;
+            }
+        }
+    }
+
+    private static boolean matchesAt(Map<String, int[]> pagePositions,
+                                     Map<String, List<Integer>> phrase, int start) {
+        for (Map.Entry<String, List<Integer>> entry : phrase.entrySet()) {
+            int[] positions = pagePositions.get(entry.getKey());
+            for (int offset : entry.getValue()) {
+                if (Arrays.binarySearch(positions, start + offset) < 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
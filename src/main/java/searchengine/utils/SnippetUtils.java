@@ -1,6 +1,7 @@
 package searchengine.utils;
 
 import org.jsoup.nodes.Document;
+import searchengine.model.PageLanguage;
 
 import java.util.HashSet;
 import java.util.Set;
@@ -15,7 +16,8 @@ public class SnippetUtils {
     private static int wordsSize;
     private static Set<Integer> usedIndexes;
 
-    public static String generateSnippet(Document document, Set<String> lemmas) {
+    public static String generateSnippet(Document document, Set<String> lemmas,
+                                         PageLanguage language) {
         String[] words = createWordsArray(document);
         if (lemmas.isEmpty() || words.length == 0) {
             return "";
@@ -24,7 +26,9 @@ public class SnippetUtils {
         listSize = lemmas.size();
         usedIndexes = new HashSet<>();
 
-        Set<Integer> lemmaIndexes = findLemmaIndexes(words, lemmas);
+        PageLanguage scripts = (language != null ? language : PageLanguage.MIXED)
+            .and(LemmaUtils.language(String.join(" ", lemmas)));
+        Set<Integer> lemmaIndexes = findLemmaIndexes(words, lemmas, scripts);
         collectIndexes(lemmaIndexes);
         return collectSnippets(words, lemmaIndexes);
     }
@@ -37,11 +41,12 @@ public class SnippetUtils {
         return text.toLowerCase().split("\\s+");
     }
 
-    private static Set<Integer> findLemmaIndexes(String[] words, Set<String> lemmas) {
+    private static Set<Integer> findLemmaIndexes(String[] words, Set<String> lemmas,
+                                                 PageLanguage scripts) {
         Set<Integer> lemmaIndexes = new HashSet<>();
         for (int i = 0; i < wordsSize; i++) {
             String word = words[i];
-            String lemma = LemmaUtils.getLemma(word);
+            String lemma = LemmaUtils.getLemma(word, scripts);
             if (lemma == null) {
                 continue;
             }